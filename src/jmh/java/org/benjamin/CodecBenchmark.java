@@ -0,0 +1,147 @@
+package org.benjamin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Throughput of decoding and encoding the {@link Corpus} data.
+ *
+ * Run with {@code gradle jmh}, allocation rate per operation is reported by the GC profiler
+ * enabled by default.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CodecBenchmark {
+
+    /**
+     * Data to benchmark on.
+     */
+    @Param
+    public Corpus corpus;
+
+    /**
+     * Bencoded data.
+     */
+    private byte[] encoded;
+
+    /**
+     * Binary properties of the data.
+     */
+    private String[] byteStrings;
+
+    /**
+     * Decoded data.
+     */
+    private Map<String, Object> decoded;
+
+    /**
+     * Reusable output for encoding.
+     */
+    private ByteArrayOutputStream output;
+
+    /**
+     * Pool of parallel decoding.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Prepares the data.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        encoded = corpus.encoded();
+        byteStrings = corpus.byteStrings();
+        decoded = new Bdecoder(UTF_8, new ByteArrayInputStream(encoded)).decodeDict(byteStrings);
+        output = new ByteArrayOutputStream(encoded.length);
+        pool = new ForkJoinPool();
+    }
+
+    /**
+     * Stops the pool.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Decodes the data from a stream.
+     *
+     * @return decoded data
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public Map<String, Object> decodeStream() throws IOException {
+        return new Bdecoder(UTF_8, new ByteArrayInputStream(encoded)).decodeDict(byteStrings);
+    }
+
+    /**
+     * Decodes the data from a {@code ByteBuffer}.
+     *
+     * @return decoded data
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public Map<String, Object> decodeBuffer() throws IOException {
+        return new Bdecoder(UTF_8, ByteBuffer.wrap(encoded)).decodeDict(byteStrings);
+    }
+
+    /**
+     * Decodes the data from a {@code ByteBuffer} splitting large lists across all the cores.
+     *
+     * @return decoded data
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public Map<String, Object> decodeBufferParallel() throws IOException {
+        return new Bdecoder(UTF_8, ByteBuffer.wrap(encoded)).parallel(pool).decodeDict(byteStrings);
+    }
+
+    /**
+     * Encodes the decoded data.
+     *
+     * @return encoded data
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public ByteArrayOutputStream encode() throws IOException {
+        output.reset();
+        new Bencoder(UTF_8, output).encode(decoded);
+        return output;
+    }
+
+    /**
+     * Decodes the data from a stream and encodes it back.
+     *
+     * @return encoded data
+     * @throws IOException if an I/O error occurs
+     */
+    @Benchmark
+    public ByteArrayOutputStream roundTrip() throws IOException {
+        output.reset();
+        new Bencoder(UTF_8, output).encode(
+                new Bdecoder(UTF_8, new ByteArrayInputStream(encoded)).decodeDict(byteStrings));
+        return output;
+    }
+}
@@ -0,0 +1,189 @@
+package org.benjamin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Representative Bencode data to benchmark on.
+ */
+public enum Corpus {
+
+    /**
+     * Single-file torrent metainfo of Ubuntu image from the test resources.
+     */
+    UBUNTU_TORRENT("info.pieces") {
+        @Override
+        Map<String, Object> generate(final Random random) throws IOException {
+            try (InputStream torrent = Corpus.class.getResourceAsStream(
+                    "/ubuntu-14.10-desktop-amd64.iso.torrent")) {
+                return new Bdecoder(UTF_8, torrent).decodeDict(byteStrings());
+            }
+        }
+    },
+
+    /**
+     * Metainfo of a torrent with thousands of files.
+     */
+    MULTI_FILE_TORRENT("info.pieces") {
+        @Override
+        Map<String, Object> generate(final Random random) {
+            final List<Object> files = new ArrayList<>();
+            for (int i = 0; i < FILE_COUNT; i++) {
+                final Map<String, Object> file = new HashMap<>();
+                file.put("length", random.nextInt(Integer.MAX_VALUE));
+                file.put("path", Arrays.asList("directory " + i % DIRECTORY_COUNT,
+                        "file " + i + ".dat"));
+                files.add(file);
+            }
+            final Map<String, Object> info = new HashMap<>();
+            info.put("files", files);
+            info.put("name", "multi-file torrent");
+            info.put("piece length", PIECE_LENGTH);
+            info.put("pieces", bytes(random, HASH_LENGTH * FILE_COUNT));
+            final Map<String, Object> torrent = new HashMap<>();
+            torrent.put("announce", "http://tracker.example.org:6969/announce");
+            torrent.put("creation date", CREATION_DATE);
+            torrent.put("info", info);
+            return torrent;
+        }
+    },
+
+    /**
+     * Tracker announce response with compact list of peers.
+     */
+    ANNOUNCE_RESPONSE("peers") {
+        @Override
+        Map<String, Object> generate(final Random random) {
+            final Map<String, Object> response = new HashMap<>();
+            response.put("complete", random.nextInt(PEER_COUNT));
+            response.put("incomplete", random.nextInt(PEER_COUNT));
+            response.put("interval", ANNOUNCE_INTERVAL);
+            response.put("min interval", ANNOUNCE_INTERVAL / 2);
+            response.put("peers", bytes(random, COMPACT_PEER_LENGTH * PEER_COUNT));
+            return response;
+        }
+    },
+
+    /**
+     * DHT KRPC response to {@code find_node} query with compact node infos.
+     */
+    KRPC_MESSAGE("t", "r.id", "r.nodes") {
+        @Override
+        Map<String, Object> generate(final Random random) {
+            final Map<String, Object> reply = new HashMap<>();
+            reply.put("id", bytes(random, HASH_LENGTH));
+            reply.put("nodes", bytes(random, COMPACT_NODE_LENGTH * NODE_COUNT));
+            final Map<String, Object> message = new HashMap<>();
+            message.put("r", reply);
+            message.put("t", bytes(random, 2));
+            message.put("y", "r");
+            return message;
+        }
+    };
+
+    /**
+     * Number of files of {@link #MULTI_FILE_TORRENT}.
+     */
+    private static final int FILE_COUNT = 5000;
+
+    /**
+     * Number of directories the files of {@link #MULTI_FILE_TORRENT} are spread across.
+     */
+    private static final int DIRECTORY_COUNT = 50;
+
+    /**
+     * Piece length of {@link #MULTI_FILE_TORRENT}.
+     */
+    private static final int PIECE_LENGTH = 262_144;
+
+    /**
+     * Creation date of {@link #MULTI_FILE_TORRENT}.
+     */
+    private static final long CREATION_DATE = 1_414_070_124L;
+
+    /**
+     * Length of SHA-1 hash sums and DHT node ids.
+     */
+    private static final int HASH_LENGTH = 20;
+
+    /**
+     * Number of peers in {@link #ANNOUNCE_RESPONSE}.
+     */
+    private static final int PEER_COUNT = 50;
+
+    /**
+     * Length of compact peer info, IPv4 address and port.
+     */
+    private static final int COMPACT_PEER_LENGTH = 6;
+
+    /**
+     * Announce interval of {@link #ANNOUNCE_RESPONSE} in seconds.
+     */
+    private static final int ANNOUNCE_INTERVAL = 1800;
+
+    /**
+     * Number of nodes in {@link #KRPC_MESSAGE}.
+     */
+    private static final int NODE_COUNT = 8;
+
+    /**
+     * Length of compact node info, node id followed by compact peer info.
+     */
+    private static final int COMPACT_NODE_LENGTH = HASH_LENGTH + COMPACT_PEER_LENGTH;
+
+    /**
+     * Binary properties of the data.
+     */
+    private final String[] byteStrings;
+
+    Corpus(final String... byteStrings) {
+        this.byteStrings = byteStrings;
+    }
+
+    /**
+     * Returns binary properties of the data to pass to {@link Bdecoder#decodeDict(String...)}.
+     *
+     * @return binary properties
+     */
+    public String[] byteStrings() {
+        return byteStrings.clone();
+    }
+
+    /**
+     * Returns the data Bencoded.
+     *
+     * Generated data is the same for every call.
+     *
+     * @return encoded data
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] encoded() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new Bencoder(UTF_8, output).encode(generate(new Random(ordinal())));
+        return output.toByteArray();
+    }
+
+    /**
+     * Generates the data.
+     *
+     * @param random source of the random content
+     * @return dictionary to encode
+     * @throws IOException if an I/O error occurs
+     */
+    abstract Map<String, Object> generate(Random random) throws IOException;
+
+    private static byte[] bytes(final Random random, final int length) {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
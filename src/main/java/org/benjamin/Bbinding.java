@@ -0,0 +1,332 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Binding of Bencode dictionaries to objects of a class.
+ *
+ * Dictionary values are decoded straight into the fields of a new object and the fields are
+ * encoded straight from the object, no intermediate {@code Map} is built in either direction.
+ * Each non-static non-transient field of the class and its superclasses is bound to the key
+ * named after the field or given by its {@link Bkey} annotation. Supported field types are
+ * {@code long}, {@code int}, their wrappers, {@code String}, {@link Bstring}, {@code byte[]},
+ * {@code ByteBuffer}, {@link Bnode}, {@code List}s and {@code Map}s with {@code String} keys
+ * of the supported types and other bound classes, which can't be enums, abstract or platform
+ * classes like {@code Date}. {@code Object}s are decoded as usual:
+ *
+ * <pre>
+ * class Torrent {
+ *     String announce;
+ *     &#64;Bkey("creation date")
+ *     Long creationDate;
+ *     Info info;
+ * }
+ * ...
+ * Torrent torrent = decoder.decode(Bbinding.of(Torrent.class));
+ * encoder.encode(torrent, Bbinding.of(Torrent.class));
+ * </pre>
+ *
+ * The binding is built once per class from method handles of the fields and the constructor
+ * without parameters, which the class must have. Keys missing from a dictionary leave the
+ * fields with their initial values, unknown keys are skipped, {@code null} fields are not
+ * encoded. Bindings are immutable and could be shared across threads.
+ */
+public final class Bbinding<T> {
+
+    /**
+     * Bindings of the classes, built on the first use.
+     */
+    private static final ClassValue<Bbinding<?>> BINDINGS = new ClassValue<Bbinding<?>>() {
+        @Override
+        protected Bbinding<?> computeValue(final Class<?> type) {
+            return create(type);
+        }
+    };
+
+    /**
+     * Order of the keys encoded in UTF-8 or another charset ordering bytes as code points.
+     */
+    private static final KeyOrder CODE_POINT_ORDER = new KeyOrder(UTF_8);
+
+    /**
+     * The bound class.
+     */
+    private final Class<T> type;
+
+    /**
+     * Constructor of the bound class taking no parameters and returning {@code Object}.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * Bound fields in {@link #CODE_POINT_ORDER} of the keys.
+     */
+    private final Property[] properties;
+
+    /**
+     * Bound fields by the keys.
+     */
+    private final Map<String, Property> keys = new HashMap<>();
+
+    private Bbinding(final Class<T> type) {
+        if (!Binder.isBindable(type)) {
+            throw new IllegalArgumentException("Class of Bencode unsupported type found: " + type);
+        }
+        this.type = type;
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            final Constructor<T> declared = type.getDeclaredConstructor();
+            declared.setAccessible(true);
+            constructor = lookup.unreflectConstructor(declared)
+                .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(
+                    "Bound " + type + " has no accessible constructor without parameters", e);
+        }
+        final List<Property> bound = new ArrayList<>();
+        for (Class<?> declaring = type; declaring != Object.class;
+                declaring = declaring.getSuperclass()) {
+            for (final Field field : declaring.getDeclaredFields()) {
+                if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0
+                        && !field.isSynthetic()) {
+                    bound.add(new Property(lookup, field));
+                }
+            }
+        }
+        properties = bound.toArray(new Property[bound.size()]);
+        Arrays.sort(properties, new PropertyOrder(CODE_POINT_ORDER));
+        for (final Property property : properties) {
+            if (keys.put(property.key, property) != null) {
+                throw new IllegalArgumentException(
+                        "Key '" + property.key + "' is bound to several fields of " + type);
+            }
+        }
+    }
+
+    /**
+     * Returns binding of {@code type}, which is built on the first call.
+     *
+     * @param <T>  the bound class
+     * @param type the bound class
+     * @return binding of the class
+     * @throws IllegalArgumentException if the class or a bound class of its fields has no
+     *                                  constructor without parameters or a field of
+     *                                  unsupported type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Bbinding<T> of(final Class<T> type) {
+        return (Bbinding<T>) BINDINGS.get(type);
+    }
+
+    private static <T> Bbinding<T> create(final Class<T> type) {
+        final Bbinding<T> binding = new Bbinding<>(type);
+        // nested classes are checked upfront, their bindings are still looked up on use as
+        // a class could be nested in itself
+        final Set<Class<?>> checked = new HashSet<>();
+        checked.add(type);
+        final Deque<Bbinding<?>> unchecked = new ArrayDeque<>();
+        unchecked.add(binding);
+        final List<Class<?>> nested = new ArrayList<>();
+        while (!unchecked.isEmpty()) {
+            for (final Property property : unchecked.poll().properties) {
+                property.binder.collectBound(nested);
+            }
+            for (final Class<?> nestedType : nested) {
+                if (checked.add(nestedType)) {
+                    unchecked.add(new Bbinding<>(nestedType));
+                }
+            }
+            nested.clear();
+        }
+        return binding;
+    }
+
+    /**
+     * Decodes the next dictionary to a new object.
+     *
+     * @param decoder decoder to read the dictionary from
+     * @return object with the decoded values in the bound fields
+     * @throws IOException if an I/O error occurs
+     * @see Bdecoder#decode(Bbinding)
+     */
+    T decode(final Bdecoder decoder) throws IOException {
+        final Object object = newInstance();
+        decoder.begin('d');
+        int count = 0;
+        while (decoder.hasNext(count++)) {
+            final Property property = keys.get(decoder.decodeKey());
+            if (property == null) {
+                decoder.skipValue();
+            } else {
+                property.set(object, property.binder.decode(decoder));
+            }
+        }
+        return type.cast(object);
+    }
+
+    /**
+     * Encodes fields of {@code object} as a dictionary.
+     *
+     * @param object  object of the bound class
+     * @param encoder encoder to write the dictionary to
+     * @throws IOException if an I/O error occurs
+     * @see Bencoder#encode(Object, Bbinding)
+     */
+    void encodeObject(final Object object, final Bencoder encoder) throws IOException {
+        Property[] ordered = properties;
+        if (!encoder.keyOrder().isCodePointOrder()) {
+            ordered = properties.clone();
+            Arrays.sort(ordered, new PropertyOrder(encoder.keyOrder()));
+        }
+        encoder.begin('d');
+        for (final Property property : ordered) {
+            final Object value = property.get(object);
+            if (value != null) {
+                encoder.writeKey(property.key);
+                property.binder.encode(value, encoder);
+            }
+        }
+        encoder.end();
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private Object newInstance() {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to create instance of " + type, e);
+        }
+    }
+
+    /**
+     * Bound field.
+     */
+    private static final class Property {
+
+        /**
+         * Dictionary key of the field.
+         */
+        private final String key;
+
+        /**
+         * Binder of the field type.
+         */
+        private final Binder binder;
+
+        /**
+         * Getter of the field taking and returning {@code Object}.
+         */
+        private final MethodHandle getter;
+
+        /**
+         * Setter of the field taking {@code Object}s.
+         */
+        private final MethodHandle setter;
+
+        /**
+         * Binds {@code field}.
+         *
+         * @param lookup lookup to unreflect the field with
+         * @param field  field to bind
+         */
+        Property(final MethodHandles.Lookup lookup, final Field field) {
+            final Bkey annotation = field.getAnnotation(Bkey.class);
+            key = annotation == null ? field.getName() : annotation.value();
+            binder = Binder.of(field.getGenericType());
+            field.setAccessible(true);
+            try {
+                getter = lookup.unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+                setter = lookup.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Field " + field + " is not accessible", e);
+            }
+        }
+
+        /**
+         * Returns value of the field.
+         *
+         * @param object object to get the value of
+         * @return value of the field, boxed if primitive
+         */
+        @SuppressWarnings("PMD.AvoidCatchingThrowable")
+        Object get(final Object object) {
+            try {
+                return (Object) getter.invokeExact(object);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to get " + key, e);
+            }
+        }
+
+        /**
+         * Sets value of the field.
+         *
+         * @param object object to set the value of
+         * @param value  value of the field, boxed if primitive
+         */
+        @SuppressWarnings("PMD.AvoidCatchingThrowable")
+        void set(final Object object, final Object value) {
+            try {
+                setter.invokeExact(object, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to set " + key, e);
+            }
+        }
+    }
+
+    /**
+     * Orders bound fields by their keys.
+     */
+    private static final class PropertyOrder implements Comparator<Property>, Serializable {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Order of the keys.
+         */
+        private final KeyOrder keyOrder;
+
+        /**
+         * Creates ordering of fields by {@code keyOrder} of their keys.
+         *
+         * @param keyOrder order of the keys
+         */
+        PropertyOrder(final KeyOrder keyOrder) {
+            this.keyOrder = keyOrder;
+        }
+
+        @Override
+        public int compare(final Property first, final Property second) {
+            return keyOrder.compare(first.key, second.key);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.benjamin;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Factory of decoders and encoders reused within a thread.
+ *
+ * Every thread gets a single {@link Bdecoder} and a single {@link Bencoder} which are reset to
+ * the requested source or destination on each call, so handling a message doesn't allocate
+ * them and their internal buffers anew:
+ *
+ * <pre>
+ * private static final Bcodecs CODECS = new Bcodecs(StandardCharsets.UTF_8);
+ * ...
+ * Map&lt;String, Object&gt; query = CODECS.decoder(datagram).decodeDict("a.id", "t");
+ * CODECS.encoder(output).encode(response);
+ * </pre>
+ *
+ * A decoder or encoder returned by the factory should not be used after the next call made by
+ * the same thread, nor be passed to another thread.
+ */
+public final class Bcodecs {
+
+    /**
+     * Decoder of the current thread.
+     */
+    private final ThreadLocal<Bdecoder> decoders;
+
+    /**
+     * Encoder of the current thread.
+     */
+    private final ThreadLocal<Bencoder> encoders;
+
+    /**
+     * Creates factory of decoders and encoders using {@code charset} for {@code String}s.
+     *
+     * @param charset charset used to decode and encode {@code String}s
+     */
+    public Bcodecs(final Charset charset) {
+        this(charset, Blimits.UNLIMITED);
+    }
+
+    /**
+     * Creates factory of decoders checking {@code limits} and encoders using {@code charset} for
+     * {@code String}s.
+     *
+     * @param charset charset used to decode and encode {@code String}s
+     * @param limits  limits the decoders check, see {@link Bdecoder#limits(Blimits)}
+     */
+    public Bcodecs(final Charset charset, final Blimits limits) {
+        decoders = new ThreadLocal<Bdecoder>() {
+            @Override
+            protected Bdecoder initialValue() {
+                return new Bdecoder(charset, ByteBuffer.allocate(0)).limits(limits);
+            }
+        };
+        encoders = new ThreadLocal<Bencoder>() {
+            @Override
+            protected Bencoder initialValue() {
+                return new Bencoder(charset, (OutputStream) null);
+            }
+        };
+    }
+
+    /**
+     * Returns decoder of the current thread reading from {@code inputStream}.
+     *
+     * @param inputStream stream to decode data from
+     * @return decoder of the current thread
+     * @see Bdecoder#reset(InputStream)
+     */
+    public Bdecoder decoder(final InputStream inputStream) {
+        return decoders.get().reset(inputStream);
+    }
+
+    /**
+     * Returns decoder of the current thread reading remaining bytes of {@code byteBuffer}.
+     *
+     * @param byteBuffer buffer to decode data from
+     * @return decoder of the current thread
+     * @see Bdecoder#reset(ByteBuffer)
+     */
+    public Bdecoder decoder(final ByteBuffer byteBuffer) {
+        return decoders.get().reset(byteBuffer);
+    }
+
+    /**
+     * Returns encoder of the current thread writing to {@code outputStream}.
+     *
+     * @param outputStream stream to encode data to
+     * @return encoder of the current thread
+     * @see Bencoder#reset(OutputStream)
+     */
+    public Bencoder encoder(final OutputStream outputStream) {
+        return encoders.get().reset(outputStream);
+    }
+}
@@ -0,0 +1,286 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Decoder of many files of Bencode dictionaries, e.g. a corpus of .torrent files.
+ *
+ * Each file is read whole and decoded by a task of the executor, so reading and decoding of
+ * different files overlap. The results are handed to the callback in the calling thread, thus
+ * the callback doesn't need to be thread-safe. At most {@link #maxInFlight(int)} files are
+ * read, decoded or waiting for the callback at a time, which bounds the memory taken by the
+ * batch. A file failing to be read or decoded is reported to the callback without aborting
+ * the batch:
+ *
+ * <pre>
+ * ExecutorService executor = Executors.newFixedThreadPool(cores);
+ * try (DirectoryStream&lt;Path&gt; torrents = Files.newDirectoryStream(dir, "*.torrent")) {
+ *     new Bcorpus(UTF_8, executor).byteStrings("info.pieces").decode(torrents, indexer);
+ * }
+ * </pre>
+ *
+ * The decoders are reused by the executor threads, see {@link Bcodecs}.
+ */
+public final class Bcorpus {
+
+    /**
+     * Default maximum number of files in flight.
+     */
+    private static final int DEFAULT_IN_FLIGHT = 64;
+
+    /**
+     * Decoders of the executor threads.
+     */
+    private final Bcodecs codecs;
+
+    /**
+     * Limits the decoders check.
+     */
+    private final Blimits limits;
+
+    /**
+     * Executor to read and decode the files in, not owned by the corpus decoder.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Binary properties of the dictionaries.
+     */
+    private String[] byteStrings = new String[0];
+
+    /**
+     * Whether the results are handed to the callback in the order of the files.
+     */
+    private boolean ordered;
+
+    /**
+     * Maximum number of files in flight.
+     */
+    private int maxInFlight = DEFAULT_IN_FLIGHT;
+
+    /**
+     * Creates decoder of files running tasks on {@code executor} and using {@code charset} to
+     * decode {@code String}s.
+     *
+     * @param charset  charset used to decode {@code String}s
+     * @param executor executor to read and decode the files in
+     */
+    public Bcorpus(final Charset charset, final ExecutorService executor) {
+        this(charset, Blimits.UNLIMITED, executor);
+    }
+
+    /**
+     * Creates decoder of files checking {@code limits}, running tasks on {@code executor} and
+     * using {@code charset} to decode {@code String}s.
+     *
+     * Files bigger than the limit of total bytes fail without being read.
+     *
+     * @param charset  charset used to decode {@code String}s
+     * @param limits   limits the decoders check, see {@link Bdecoder#limits(Blimits)}
+     * @param executor executor to read and decode the files in
+     */
+    public Bcorpus(final Charset charset, final Blimits limits, final ExecutorService executor) {
+        this.codecs = new Bcodecs(charset, limits);
+        this.limits = limits;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets binary properties of the dictionaries, see {@link Bdecoder#decodeDict(String...)}.
+     *
+     * The binary values are {@code ByteBuffer} views of the file content.
+     *
+     * @param properties names of the binary properties
+     * @return this Bcorpus instance
+     */
+    public Bcorpus byteStrings(final String... properties) {
+        byteStrings = properties.clone();
+        return this;
+    }
+
+    /**
+     * Makes the results be handed to the callback in the order of the files rather than as
+     * soon as they are decoded.
+     *
+     * A slow file holds back the results of the following ones, which still count as in
+     * flight.
+     *
+     * @return this Bcorpus instance
+     */
+    public Bcorpus ordered() {
+        ordered = true;
+        return this;
+    }
+
+    /**
+     * Limits number of files read, decoded or waiting for the callback at a time.
+     *
+     * @param count maximum number of files in flight, 64 by default
+     * @return this Bcorpus instance
+     */
+    public Bcorpus maxInFlight(final int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one file should be in flight: " + count);
+        }
+        maxInFlight = count;
+        return this;
+    }
+
+    /**
+     * Decodes dictionaries of the files in {@code paths}.
+     *
+     * The paths are iterated in the calling thread as the files are decoded, so a lazily
+     * populated {@code Iterable} like {@code DirectoryStream} is not read ahead of the batch.
+     * If the callback throws, the batch is aborted and the tasks not yet run are cancelled.
+     *
+     * @param paths    files to decode
+     * @param callback receiver of the results
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void decode(final Iterable<Path> paths, final Callback callback)
+            throws InterruptedException {
+        final CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        final Deque<Future<Result>> pending = new ArrayDeque<>();
+        try {
+            for (final Path path : paths) {
+                if (pending.size() == maxInFlight) {
+                    deliver(next(completion, pending), callback);
+                }
+                final Callable<Result> task = new DecodeTask(path);
+                // completed tasks are only queued by the completion service when taken from it
+                pending.add(ordered ? executor.submit(task) : completion.submit(task));
+            }
+            while (!pending.isEmpty()) {
+                deliver(next(completion, pending), callback);
+            }
+        } finally {
+            for (final Future<Result> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Result next(final CompletionService<Result> completion,
+            final Deque<Future<Result>> pending) throws InterruptedException {
+        final Future<Result> future = ordered ? pending.peekFirst() : completion.take();
+        pending.remove(future);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Decoding task failed unexpectedly", e.getCause());
+        }
+    }
+
+    private static void deliver(final Result result, final Callback callback) {
+        if (result.error == null) {
+            callback.decoded(result.path, result.dictionary);
+        } else {
+            callback.failed(result.path, result.error);
+        }
+    }
+
+    /**
+     * Receiver of the decoded files.
+     */
+    public interface Callback {
+
+        /**
+         * Receives dictionary of a file.
+         *
+         * @param path       the file
+         * @param dictionary decoded dictionary
+         */
+        void decoded(Path path, SortedMap<String, Object> dictionary);
+
+        /**
+         * Receives failure of a file.
+         *
+         * @param path  the file
+         * @param error {@code IOException} if the file failed to be read,
+         *              {@code IllegalStateException} or {@code NumberFormatException} if the
+         *              content is malformed or exceeds the limits
+         */
+        void failed(Path path, Exception error);
+    }
+
+    /**
+     * Outcome of a file.
+     */
+    private static final class Result {
+
+        /**
+         * The file.
+         */
+        private final Path path;
+
+        /**
+         * Decoded dictionary, {@code null} if failed.
+         */
+        private final SortedMap<String, Object> dictionary;
+
+        /**
+         * Cause of the failure, {@code null} if decoded.
+         */
+        private final Exception error;
+
+        /**
+         * Creates outcome of {@code path}.
+         *
+         * @param path       the file
+         * @param dictionary decoded dictionary or {@code null}
+         * @param error      cause of the failure or {@code null}
+         */
+        Result(final Path path, final SortedMap<String, Object> dictionary,
+                final Exception error) {
+            this.path = path;
+            this.dictionary = dictionary;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Task reading and decoding a file.
+     */
+    private final class DecodeTask implements Callable<Result> {
+
+        /**
+         * The file.
+         */
+        private final Path path;
+
+        /**
+         * Creates task decoding {@code path}.
+         *
+         * @param path the file
+         */
+        DecodeTask(final Path path) {
+            this.path = path;
+        }
+
+        @Override
+        @SuppressWarnings("PMD.AvoidCatchingGenericException")
+        public Result call() {
+            try {
+                limits.checkTotal(Files.size(path));
+                final ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(path));
+                return new Result(path, codecs.decoder(content).decodeDict(byteStrings), null);
+            } catch (IOException | RuntimeException e) {
+                // malformed numbers fail with NumberFormatException, any failure is per file
+                return new Result(path, null, e);
+            }
+        }
+    }
+}
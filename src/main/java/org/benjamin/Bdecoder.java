@@ -1,17 +1,24 @@
 package org.benjamin;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Bencode data decoder.
  */
 public class Bdecoder {
 
+    /**
+     * Initial capacity of the arrays locating lazily decoded list elements and of the frame
+     * stack.
+     */
+    private static final int INITIAL_LENGTH = 16;
+
     /**
      * Used to decode {@code String}s.
      *
@@ -20,9 +27,99 @@ public class Bdecoder {
     private final Charset charset;
 
     /**
-     * A stream to decode data from.
+     * Order of the keys of decoded dictionaries.
+     */
+    private final KeyOrder keyOrder;
+
+    /**
+     * Decoder of dictionary keys.
+     */
+    private final KeyDecoder keys;
+
+    /**
+     * A buffered source to decode data from.
+     */
+    private final ByteInput input;
+
+    /**
+     * Whether binary dictionary properties are decoded as {@code ByteBuffer} views.
+     */
+    private boolean slicing;
+
+    /**
+     * Buffer lazily decoded values are located in, {@code null} unless decoding lazily.
+     */
+    private ByteBuffer lazySource;
+
+    /**
+     * Properties of top-level dictionaries whose values are kept as {@link Braw} spans.
+     */
+    private List<String> rawProperties = Collections.emptyList();
+
+    /**
+     * Whether string values are decoded as {@link Bstring}s.
+     */
+    private boolean charSequences;
+
+    /**
+     * Pool to decode list elements in, {@code null} unless decoding in parallel.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Top-level dictionary property to digest raw value of.
+     */
+    private String digestKey;
+
+    /**
+     * Digest to feed raw value of {@link #digestKey} to.
+     */
+    private MessageDigest digest;
+
+    /**
+     * Number of the lists and dictionaries being decoded.
+     */
+    private int depth;
+
+    /**
+     * Lists and dictionaries being decoded, innermost last, the frames are reused.
+     */
+    private Frame[] frames = new Frame[INITIAL_LENGTH];
+
+    /**
+     * Number of the frames in use.
+     */
+    private int frameCount;
+
+    /**
+     * Decoder of {@link Bnode} trees, {@code null} until one is decoded.
+     */
+    private NodeDecoder nodeDecoder;
+
+    /**
+     * Listener of the decoded values, {@code null} unless set.
+     */
+    private Blistener listener;
+
+    /**
+     * Statistics of the value being decoded, {@code null} unless a listener is set.
      */
-    private final PushbackInputStream inputStream;
+    private Bstats stats;
+
+    /**
+     * Whether a top-level value is being decoded for the listener.
+     */
+    private boolean measuringValue;
+
+    /**
+     * Time decoding of the top-level value started at.
+     */
+    private long started;
+
+    /**
+     * Number of bytes consumed from the source before the top-level value.
+     */
+    private long consumedBefore;
 
     /**
      * Creates decoder using {@code bencodedString} of specified {@code charset} as source of data.
@@ -35,19 +132,252 @@ public class Bdecoder {
      * @param bencodedString a {@code String} to use as source for the stream of Bencode data
      */
     public Bdecoder(final Charset charset, final String bencodedString) {
-        this(charset, new ByteArrayInputStream(bencodedString.getBytes(charset)));
+        this(charset, new ByteInput(bencodedString.getBytes(charset)), false);
     }
 
     /**
      * Creates decoder reading from {@code inputStream} using {@code charset} to decode
      * character data.
      *
+     * The stream is read in chunks, so the decoder may consume bytes past the end of
+     * the decoded values.
+     *
      * @param charset     charset used to decode {@code String}s
      * @param inputStream stream to decode data from
      */
     public Bdecoder(final Charset charset, final InputStream inputStream) {
+        this(charset, new ByteInput(inputStream), false);
+    }
+
+    /**
+     * Creates decoder reading remaining bytes of {@code byteBuffer} using {@code charset} to
+     * decode character data.
+     *
+     * Position of the {@code byteBuffer} is not changed. Binary dictionary properties are
+     * decoded as {@code ByteBuffer} views of {@code byteBuffer} instead of {@code byte} array
+     * copies, see {@link #decodeByteBuffer()}. The buffer could be a {@code MappedByteBuffer}
+     * to decode a file without reading it to heap.
+     *
+     * @param charset    charset used to decode {@code String}s
+     * @param byteBuffer buffer to decode data from
+     */
+    public Bdecoder(final Charset charset, final ByteBuffer byteBuffer) {
+        this(charset, new ByteInput(byteBuffer), true);
+    }
+
+    /**
+     * Creates decoder reading remaining bytes of {@code source}, which is a part of the source
+     * of another decoder, decoding binary dictionary properties the same way.
+     *
+     * @param charset charset used to decode {@code String}s
+     * @param source  buffer to decode data from
+     * @param slicing whether binary dictionary properties are decoded as {@code ByteBuffer}
+     *                views of {@code source} or as {@code byte} arrays
+     */
+    Bdecoder(final Charset charset, final ByteBuffer source, final boolean slicing) {
+        this(charset, new ByteInput(source), slicing);
+    }
+
+    private Bdecoder(final Charset charset, final ByteInput input, final boolean slicing) {
         this.charset = charset;
-        this.inputStream = new PushbackInputStream(inputStream);
+        this.keyOrder = new KeyOrder(charset);
+        this.keys = new KeyDecoder(charset);
+        this.input = input;
+        this.slicing = slicing;
+    }
+
+    /**
+     * Switches the decoder to read from {@code inputStream}, so the decoder and its internal
+     * buffer could be reused for another message.
+     *
+     * Data buffered from the previous source is discarded, options set with {@link #lazy()},
+     * {@link #parallel(ForkJoinPool)} and {@link #digest(String, MessageDigest)} are cleared.
+     *
+     * @param inputStream stream to decode data from
+     * @return this Bdecoder instance
+     * @see #Bdecoder(Charset, InputStream)
+     */
+    public Bdecoder reset(final InputStream inputStream) {
+        input.reset(inputStream);
+        return resetState(false);
+    }
+
+    /**
+     * Switches the decoder to read remaining bytes of {@code byteBuffer}, so the decoder could be
+     * reused for another message.
+     *
+     * Data buffered from the previous source is discarded, options set with {@link #lazy()},
+     * {@link #parallel(ForkJoinPool)} and {@link #digest(String, MessageDigest)} are cleared.
+     *
+     * @param byteBuffer buffer to decode data from
+     * @return this Bdecoder instance
+     * @see #Bdecoder(Charset, ByteBuffer)
+     */
+    public Bdecoder reset(final ByteBuffer byteBuffer) {
+        input.reset(byteBuffer);
+        return resetState(true);
+    }
+
+    /**
+     * Switches the decoder to decode dictionaries and lists lazily.
+     *
+     * Instead of decoding all the values upfront, {@link #decodeDict(String...)} and
+     * {@link #decodeList()} only locate them and return views backed by the source data. Each
+     * value is decoded on the first access and kept by the view afterwards. The views could be
+     * read from concurrent threads, lazy lists are of fixed size. Lazy decoding is only
+     * available when the source data is in memory, i.e. not read from a stream.
+     *
+     * @return this Bdecoder instance
+     */
+    public Bdecoder lazy() {
+        lazySource = input.source();
+        if (lazySource == null) {
+            throw new IllegalStateException("Lazy decoding requires ByteBuffer or String source");
+        }
+        return this;
+    }
+
+    /**
+     * Makes the decoder to keep values of {@code properties} as spans of raw bytes.
+     *
+     * The values are skipped rather than decoded and returned as {@link Braw} views of the
+     * source, which {@link Bencoder} copies verbatim. Re-encoding a decoded dictionary with
+     * a modified property then only costs encoding of the rest, and the raw values stay
+     * byte-for-byte the same, so e.g. info-hash of a torrent is preserved:
+     *
+     * <pre>
+     * Map&lt;String, Object&gt; torrent = decoder.raw("info").decodeDict();
+     * torrent.put("announce", tracker);
+     * encoder.encode(torrent);
+     * </pre>
+     *
+     * Properties are specified hierarchically the same way as binary ones, see
+     * {@link #decodeDict(String...)}. The option is only available when the source data is in
+     * memory, i.e. not read from a stream, and is not applied to lazily decoded views.
+     *
+     * @param properties names of the properties to keep raw
+     * @return this Bdecoder instance
+     */
+    public Bdecoder raw(final String... properties) {
+        if (input.source() == null) {
+            throw new IllegalStateException("Raw values require ByteBuffer or String source");
+        }
+        rawProperties = Arrays.asList(properties.clone());
+        return this;
+    }
+
+    /**
+     * Switches the decoder to decode string values of lists and dictionaries as {@link Bstring}s.
+     *
+     * The bytes of such a value are referenced rather than decoded, the characters are decoded
+     * once read, so values which are never read don't cost a {@code String}. If the decoder
+     * reads a {@code ByteBuffer} the bytes are a view of it, no bytes are copied. Dictionary
+     * keys and binary properties are decoded as usual, so are the values of lazily decoded
+     * views.
+     *
+     * @return this Bdecoder instance
+     */
+    public Bdecoder charSequences() {
+        charSequences = true;
+        return this;
+    }
+
+    /**
+     * Switches the decoder to decode elements of large lists in parallel on {@code pool}.
+     *
+     * Lists are first scanned for the element boundaries without decoding anything, then runs
+     * of adjacent elements are decoded by tasks of the pool, each having a decoder of its own.
+     * The result is the same as of sequential decoding. Only lists with more than a few hundred
+     * elements are split, e.g. "files" of multi-file torrents, values nested in the elements
+     * are decoded sequentially by the task decoding the element. Successive top-level values
+     * decoded by {@link #decodeAll()} are split the same way. Parallel decoding is only
+     * available when the source data is in memory, i.e. not read from a stream, and is not
+     * applied if the decoder decodes lazily.
+     *
+     * @param pool pool to run the decoding tasks in
+     * @return this Bdecoder instance
+     */
+    public Bdecoder parallel(final ForkJoinPool pool) {
+        if (input.source() == null) {
+            throw new IllegalStateException(
+                    "Parallel decoding requires ByteBuffer or String source");
+        }
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Makes the decoder to check {@code limits} while decoding.
+     *
+     * Byte string lengths are checked before the content is allocated, nesting depth before
+     * a list or a dictionary is decoded. Lists and dictionaries are decoded iteratively, so
+     * even without a depth limit nesting is bounded by the heap rather than the thread stack.
+     * Unlike other options, limits are kept when the decoder is reset.
+     *
+     * @param limits limits to check
+     * @return this Bdecoder instance
+     * @throws IllegalStateException from the decoding methods if a limit is exceeded
+     */
+    public Bdecoder limits(final Blimits limits) {
+        input.limits(limits);
+        return this;
+    }
+
+    /**
+     * Makes the decoder to report statistics of each decoded top-level value to
+     * {@code listener}.
+     *
+     * A value is reported once the public method decoding it returns or throws, values nested
+     * in it or decoded by it in turn, e.g. by {@link #decodeAll()}, are counted as a part of
+     * it. Lazily decoded views report nothing on access, elements decoded in parallel are
+     * counted while being located. Without a listener the decoder only checks a field for
+     * {@code null} per value read. Like limits, the listener is kept when the decoder is reset.
+     *
+     * @param listener listener to report to or {@code null} to report nothing
+     * @return this Bdecoder instance
+     * @see Bmetrics
+     */
+    public Bdecoder listener(final Blistener listener) {
+        this.listener = listener;
+        this.stats = listener == null ? null : new Bstats();
+        input.stats(stats);
+        return this;
+    }
+
+    /**
+     * Makes the decoder to feed raw bytes of the {@code key} property value to {@code digest}.
+     *
+     * The bytes are taken exactly as they appear in the source, while the value is decoded,
+     * no matter whether the encoding is canonical. Only properties of top-level dictionaries
+     * are digested. E.g. SHA-1 digest of "info" property is info-hash of a torrent file:
+     *
+     * <pre>
+     * MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+     * decoder.digest("info", sha1).decodeDict("info.pieces");
+     * byte[] infoHash = sha1.digest();
+     * </pre>
+     *
+     * @param key    name of the property to digest
+     * @param digest digest to update
+     * @return this Bdecoder instance
+     */
+    public Bdecoder digest(final String key, final MessageDigest digest) {
+        this.digestKey = key;
+        this.digest = digest;
+        return this;
+    }
+
+    private Bdecoder resetState(final boolean slicingSource) {
+        slicing = slicingSource;
+        lazySource = null;
+        rawProperties = Collections.emptyList();
+        charSequences = false;
+        pool = null;
+        digestKey = null;
+        digest = null;
+        depth = 0;
+        measuringValue = false;
+        return this;
     }
 
     /**
@@ -57,15 +387,13 @@ public class Bdecoder {
      * @throws IOException if an I/O error occurs
      */
     public long decodeInt() throws IOException {
-        ensureFirstChar('i');
-        final StringBuilder number = readUntil('e');
-        if (number.charAt(0) == '0' && number.length() != 1) {
-            throw new IllegalStateException("Zero padded integers aren't allowed");
-        }
-        if (number.charAt(0) == '-' && number.charAt(1) == '0') {
-            throw new IllegalStateException("Negative zero is not valid number");
+        final boolean measuring = startMeasuring();
+        try {
+            return measured(measuring, readInt());
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
         }
-        return Long.parseLong(number.toString());
     }
 
     /**
@@ -75,7 +403,13 @@ public class Bdecoder {
      * @throws IOException if an I/O error occurs
      */
     public String decodeString() throws IOException {
-        return new String(decodeBytes(), charset);
+        final boolean measuring = startMeasuring();
+        try {
+            return measured(measuring, readString());
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
+        }
     }
 
     /**
@@ -85,29 +419,49 @@ public class Bdecoder {
      * @throws IOException if an I/O error occurs
      */
     public byte[] decodeBytes() throws IOException {
-        int length;
+        final boolean measuring = startMeasuring();
         try {
-            length = Integer.parseInt(readUntil(':').toString());
-        } catch (NumberFormatException e) {
-            throw new IllegalStateException("String length specifier was expected", e);
+            return measured(measuring, readBytes());
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
         }
-        final byte[] byteString = new byte[length];
-        if (inputStream.read(byteString) != length) {
-            throw streamEnded();
+    }
+
+    /**
+     * Decodes string from the stream as a {@link Bstring} decoding the characters on demand.
+     *
+     * @return decoded string
+     * @throws IOException if an I/O error occurs
+     * @see #charSequences()
+     */
+    public Bstring decodeCharSequence() throws IOException {
+        final boolean measuring = startMeasuring();
+        try {
+            return measured(measuring, readCharSequence());
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
         }
-        return byteString;
     }
 
-    private StringBuilder readUntil(final char delimiter) throws IOException {
-        final StringBuilder content = new StringBuilder();
-        int chr;
-        while ((chr = inputStream.read()) != delimiter) {
-            if (chr == -1) {
-                throw streamEnded();
-            }
-            content.append((char) chr);
+    /**
+     * Reads encoded byte string from the stream as a {@code ByteBuffer}.
+     *
+     * If the decoder reads a {@code ByteBuffer} the result is a view of it sharing the same
+     * content, no bytes are copied.
+     *
+     * @return buffer of the decoded byte string
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteBuffer decodeByteBuffer() throws IOException {
+        final boolean measuring = startMeasuring();
+        try {
+            return measured(measuring, readByteBuffer());
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
         }
-        return content;
     }
 
     /**
@@ -119,18 +473,25 @@ public class Bdecoder {
      * @return list of decoded values
      * @throws IOException if an I/O error occurs
      */
+    @SuppressWarnings("unchecked")
     public List<Object> decodeList() throws IOException {
-        ensureFirstChar('l');
-        int chr;
-        final List<Object> list = new ArrayList<>();
-        while ((chr = inputStream.read()) != 'e') {
-            if (chr == -1) {
-                throw streamEnded();
+        final boolean measuring = startMeasuring();
+        try {
+            ensureFirstChar('l');
+            final List<Object> list;
+            if (lazySource != null) {
+                list = new LazyList(charset, lazySource, slicing, locateElements());
+            } else if (pool != null) {
+                list = decodeElements(locateElements());
+            } else {
+                list = (List<Object>) decodeContainer('l', Collections.<String>emptyList(),
+                        Collections.<String>emptyList());
             }
-            inputStream.unread(chr);
-            list.add(decodeObject(chr));
+            return measured(measuring, list);
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
         }
-        return list;
     }
 
     /**
@@ -141,68 +502,729 @@ public class Bdecoder {
      * encoding, as opposed to raw byte arrays, unless they appear in {@code byteString}.
      * Binary properties in {@code byteStrings} could be specified hierarchically, e.g.
      * {@code "info.pieces"} where "info" is the key of inner dictionary and "pieces" is
-     * a byte string property inside that dictionary.
+     * a byte string property inside that dictionary. Binary properties are decoded as
+     * {@code ByteBuffer}s if the decoder reads a {@code ByteBuffer} and {@code byte} arrays
+     * otherwise.
      *
      * @param  byteStrings array of string properties to parse as raw bytes
      * @return dictionary of decoded values
      * @throws IOException if an I/O error occurs
      */
     public SortedMap<String, Object> decodeDict(final String... byteStrings) throws IOException {
+        final boolean measuring = startMeasuring();
+        try {
+            return measured(measuring, decodeDict(Arrays.asList(byteStrings), rawProperties));
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes only the selected properties of dictionary from the stream.
+     *
+     * Properties in {@code paths} are specified hierarchically the same way as binary properties,
+     * e.g. {@code "info.length"} selects "length" property of the inner dictionary "info" while
+     * {@code "info"} selects the whole inner dictionary. Inner dictionaries are present in the
+     * result only to hold the selected properties. Values of the properties not selected are
+     * skipped without being decoded.
+     *
+     * @param  paths       properties to decode
+     * @param  byteStrings array of string properties to parse as raw bytes,
+     *                     see {@link #decodeDict(String...)}
+     * @return dictionary of the selected decoded values
+     * @throws IOException if an I/O error occurs
+     */
+    public SortedMap<String, Object> decodeDict(final Collection<String> paths,
+            final String... byteStrings) throws IOException {
+        final boolean measuring = startMeasuring();
+        try {
+            ensureFirstChar('d');
+            final List<String> byteStringsList = Arrays.asList(byteStrings);
+            input.startContainer(++depth, true);
+            int chr;
+            int count = 0;
+            final SortedMap<String, Object> dictionary = new TreeMap<>(keyOrder);
+            while ((chr = input.peek()) != 'e') {
+                if (chr == -1) {
+                    throw ByteInput.streamEnded();
+                }
+                input.limits().checkElements(++count);
+                final String key = keys.decode(input);
+                final List<String> innerPaths = innerProperties(key, paths);
+                final boolean digesting = startDigest(key);
+                if (paths.contains(key)) {
+                    dictionary.put(key, decodeValue(key, byteStringsList));
+                } else if (innerPaths.isEmpty() || input.peek() != 'd') {
+                    input.skipValue(depth);
+                } else {
+                    dictionary.put(key,
+                            decodeDict(innerPaths, innerByteStrings(key, byteStringsList)));
+                }
+                if (digesting) {
+                    input.endCapture();
+                }
+            }
+            input.read();
+            depth--;
+            return measured(measuring, dictionary);
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the next value of any type to a tree of typed nodes.
+     *
+     * The tree takes a fraction of memory the collections returned by the other methods do,
+     * no values are boxed and byte strings aren't decoded to {@code String}s, see
+     * {@link Bnode}. If the decoder reads a {@code ByteBuffer} backed by an array, byte string
+     * nodes refer to the array directly, so it should not be modified while the tree is in use.
+     *
+     * @return root node of the decoded tree
+     * @throws IOException if an I/O error occurs
+     */
+    public Bnode decodeNode() throws IOException {
+        final boolean measuring = startMeasuring();
+        try {
+            if (nodeDecoder == null) {
+                nodeDecoder = new NodeDecoder(charset, input);
+            }
+            return measured(measuring, nodeDecoder.decode());
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Tells whether the source has data left to decode.
+     *
+     * Source of concatenated values ends cleanly if it ends between the values. Truncation
+     * within a value is reported by the decoding methods with {@code IllegalStateException}.
+     *
+     * @return {@code false} if the end of stream is reached
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean hasRemaining() throws IOException {
+        return input.peek() != -1;
+    }
+
+    /**
+     * Returns iterator decoding successive top-level values of the source until its end.
+     *
+     * The values are decoded one by one from the same buffered source, e.g. messages written
+     * back to back to a pipe or a log. The iterator throws {@code IllegalStateException} if
+     * a value is malformed or truncated, {@code IOException}s are its causes.
+     *
+     * @return iterator of the decoded values
+     */
+    public Iterator<Object> values() {
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return hasRemaining();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to read the next value", e);
+                }
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return decodeNext();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to decode the next value", e);
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Decoded values can't be removed");
+            }
+        };
+    }
+
+    /**
+     * Decodes all the remaining top-level values of the source.
+     *
+     * If the decoder decodes in parallel, the values are first located without decoding, then
+     * decoded by the pool the same way as elements of a large list, see
+     * {@link #parallel(ForkJoinPool)}.
+     *
+     * @return list of the decoded values
+     * @throws IOException if an I/O error occurs
+     */
+    public List<Object> decodeAll() throws IOException {
+        final boolean measuring = startMeasuring();
+        try {
+            if (pool != null && lazySource == null) {
+                return measured(measuring, decodeElements(locateBounds(-1)));
+            }
+            final List<Object> values = new ArrayList<>();
+            while (hasRemaining()) {
+                values.add(decodeObject());
+            }
+            return measured(measuring, values);
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes value of dictionary property {@code key}.
+     *
+     * @param key             name of the property
+     * @param byteStringsList binary properties of the dictionary
+     * @return decoded value
+     * @throws IOException if an I/O error occurs
+     */
+    Object decodeValue(final String key, final List<String> byteStringsList)
+            throws IOException {
+        final int chr = input.peek();
+        return chr == 'd'
+            ? decodeDict(innerProperties(key, byteStringsList), Collections.<String>emptyList())
+            : byteStringsList.contains(key)
+                ? decodeBinary()
+                : decodeObject(chr);
+    }
+
+    /**
+     * Decodes dictionary from the stream straight into a new object bound by {@code binding}.
+     *
+     * @param <T>     class of the object
+     * @param binding binding of the class
+     * @return object with the decoded values in the bound fields
+     * @throws IOException if an I/O error occurs
+     */
+    public <T> T decode(final Bbinding<T> binding) throws IOException {
+        final boolean measuring = startMeasuring();
+        try {
+            return measured(measuring, binding.decode(this));
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the next value of any type.
+     *
+     * @return decoded value
+     * @throws IOException if an I/O error occurs
+     */
+    Object decodeObject() throws IOException {
+        return decodeObject(input.peek());
+    }
+
+    /**
+     * Decodes the next top-level value of any type reporting it to the listener.
+     *
+     * @return decoded value
+     * @throws IOException if an I/O error occurs
+     */
+    private Object decodeNext() throws IOException {
+        final boolean measuring = startMeasuring();
+        try {
+            return measured(measuring, decodeObject());
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            failed(measuring, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts decoding of list or dictionary whose items are decoded one by one, see
+     * {@link Bbinding}.
+     *
+     * @param marker {@code 'l'} or {@code 'd'}
+     * @throws IOException if an I/O error occurs
+     */
+    void begin(final char marker) throws IOException {
+        ensureFirstChar(marker);
+        input.startContainer(++depth, marker == 'd');
+    }
+
+    /**
+     * Tells whether the container started with {@link #begin(char)} has more items, consumes
+     * the end of the container otherwise.
+     *
+     * @param count number of the items decoded so far
+     * @return {@code true} if there is another item
+     * @throws IOException if an I/O error occurs
+     */
+    boolean hasNext(final int count) throws IOException {
+        final int chr = input.peek();
+        if (chr == 'e') {
+            input.read();
+            depth--;
+            return false;
+        }
+        if (chr == -1) {
+            throw ByteInput.streamEnded();
+        }
+        input.limits().checkElements(count + 1);
+        return true;
+    }
+
+    /**
+     * Decodes dictionary key.
+     *
+     * @return decoded key
+     * @throws IOException if an I/O error occurs
+     */
+    String decodeKey() throws IOException {
+        return keys.decode(input);
+    }
+
+    /**
+     * Skips the next value without decoding it.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void skipValue() throws IOException {
+        input.skipValue(depth);
+    }
+
+    /**
+     * Returns order of the keys of decoded dictionaries.
+     *
+     * @return order of the keys
+     */
+    KeyOrder keyOrder() {
+        return keyOrder;
+    }
+
+    /**
+     * Creates decoder of {@code source} with the limits, the string and the binary property
+     * decoding of this one.
+     *
+     * @param source buffer to decode, a part of the source of this decoder
+     * @return new decoder
+     */
+    Bdecoder fork(final ByteBuffer source) {
+        final Bdecoder decoder = new Bdecoder(charset, source, slicing).limits(input.limits());
+        decoder.charSequences = charSequences;
+        return decoder;
+    }
+
+    /**
+     * Starts measuring of a top-level value if a listener is set.
+     *
+     * @return {@code false} if nothing is measured or the value is nested in a measured one
+     */
+    private boolean startMeasuring() {
+        if (listener == null || measuringValue) {
+            return false;
+        }
+        measuringValue = true;
+        stats.reset();
+        consumedBefore = input.consumed();
+        started = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Reports the measured value to the listener.
+     *
+     * @param <T>     type of the value
+     * @param measure result of {@link #startMeasuring()}
+     * @param value   decoded value
+     * @return the value
+     */
+    private <T> T measured(final boolean measure, final T value) {
+        if (measure) {
+            finishMeasuring();
+            listener.decoded(stats);
+        }
+        return value;
+    }
+
+    private long measured(final boolean measure, final long value) {
+        if (measure) {
+            finishMeasuring();
+            listener.decoded(stats);
+        }
+        return value;
+    }
+
+    private void failed(final boolean measure, final Exception error) {
+        if (measure) {
+            finishMeasuring();
+            listener.failed(Bfailure.of(error), error, stats);
+        }
+    }
+
+    private void finishMeasuring() {
+        measuringValue = false;
+        stats.finish(input.consumed() - consumedBefore, System.nanoTime() - started);
+    }
+
+    private int[] locateElements() throws IOException {
+        input.startContainer(depth + 1, false);
+        final int[] bounds = locateBounds('e');
+        input.read();
+        return bounds;
+    }
+
+    /**
+     * Locates successive values without decoding them.
+     *
+     * @param end {@code 'e'} to locate elements of a list or -1 to locate top-level values
+     *            until the end of stream
+     * @return indices of the values followed by index of the {@code end}
+     * @throws IOException if an I/O error occurs
+     */
+    private int[] locateBounds(final int end) throws IOException {
+        final int nesting = end == -1 ? depth : depth + 1;
+        int[] bounds = new int[INITIAL_LENGTH];
+        int count = 0;
+        int chr;
+        do {
+            if (count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, count * 2);
+            }
+            bounds[count++] = input.index();
+            chr = input.peek();
+            if (chr == -1 && end != -1) {
+                throw ByteInput.streamEnded();
+            }
+            if (chr != end) {
+                if (end != -1) {
+                    input.limits().checkElements(count);
+                }
+                input.skipValue(nesting);
+            }
+        } while (chr != end);
+        return Arrays.copyOf(bounds, count);
+    }
+
+    @SuppressWarnings("unchecked")
+    private SortedMap<String, Object> decodeDict(final List<String> byteStringsList,
+            final List<String> raws) throws IOException {
         ensureFirstChar('d');
-        final List<String> byteStringsList = Arrays.asList(byteStrings);
+        if (lazySource != null) {
+            return new LazyDict(charset, lazySource, slicing, byteStringsList, locateValues());
+        }
+        return (SortedMap<String, Object>) decodeContainer('d', byteStringsList, raws);
+    }
+
+    /**
+     * Decodes list or dictionary whose marker is consumed already.
+     *
+     * The containers being decoded are kept on an explicit stack instead of the call stack,
+     * so deeply nested data can't overflow it.
+     *
+     * @param marker          {@code 'l'} or {@code 'd'}
+     * @param byteStringsList binary properties of the dictionary
+     * @param raws            properties of the dictionary to keep raw
+     * @return decoded list or dictionary
+     * @throws IOException if an I/O error occurs
+     */
+    private Object decodeContainer(final int marker, final List<String> byteStringsList,
+            final List<String> raws) throws IOException {
+        final int base = frameCount;
+        try {
+            Frame frame = startContainer(marker, byteStringsList, raws);
+            while (true) {
+                int chr = input.peek();
+                final Object value;
+                if (chr == 'e') {
+                    input.read();
+                    depth--;
+                    value = frame.end();
+                    if (--frameCount == base) {
+                        return value;
+                    }
+                    frame = frames[frameCount - 1];
+                } else {
+                    if (frame.dictionary != null) {
+                        // the key is followed by its value within the same iteration
+                        if (chr == -1) {
+                            throw ByteInput.streamEnded();
+                        }
+                        frame.key = keys.decode(input);
+                        frame.digesting = startDigest(frame.key);
+                        chr = input.peek();
+                    }
+                    if (frame.dictionary != null && frame.raws.contains(frame.key)) {
+                        value = decodeRaw();
+                    } else if (chr == 'd') {
+                        input.read();
+                        frame = frame.dictionary == null
+                                ? startContainer(chr, Collections.<String>emptyList(),
+                                        Collections.<String>emptyList())
+                                : startContainer(chr, innerProperties(frame.key, frame.byteStrings),
+                                        innerProperties(frame.key, frame.raws));
+                        continue;
+                    } else if (frame.dictionary != null
+                            && frame.byteStrings.contains(frame.key)) {
+                        value = decodeBinary();
+                    } else if (chr == 'l' && pool == null) {
+                        input.read();
+                        frame = startContainer(chr, Collections.<String>emptyList(),
+                                Collections.<String>emptyList());
+                        continue;
+                    } else if (chr == -1) {
+                        throw ByteInput.streamEnded();
+                    } else {
+                        value = decodeObject(chr);
+                    }
+                }
+                input.limits().checkElements(frame.add(value));
+                if (frame.digesting) {
+                    input.endCapture();
+                    frame.digesting = false;
+                }
+            }
+        } finally {
+            // the frames are left in use if decoding fails
+            while (frameCount > base) {
+                frames[--frameCount].end();
+            }
+        }
+    }
+
+    private Frame startContainer(final int marker, final List<String> byteStringsList,
+            final List<String> raws) {
+        input.startContainer(++depth, marker == 'd');
+        if (frameCount == frames.length) {
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        }
+        if (frames[frameCount] == null) {
+            frames[frameCount] = new Frame();
+        }
+        final Frame frame = frames[frameCount++];
+        if (marker == 'l') {
+            frame.start(new ArrayList<>(), null, byteStringsList, raws);
+        } else {
+            frame.start(null, new TreeMap<String, Object>(keyOrder), byteStringsList, raws);
+        }
+        return frame;
+    }
+
+    private List<Object> decodeElements(final int[] bounds) {
+        final Object[] elements = new Object[bounds.length - 1];
+        final ElementsTask task =
+                new ElementsTask(this, input.source(), bounds, elements, 0, elements.length);
+        if (elements.length > ElementsTask.ELEMENTS_PER_TASK) {
+            pool.invoke(task);
+        } else {
+            // small lists are decoded in the current thread
+            task.invoke();
+        }
+        return new ArrayList<>(Arrays.asList(elements));
+    }
+
+    private SortedMap<String, Object> locateValues() throws IOException {
+        input.startContainer(++depth, true);
+        final SortedMap<String, Object> values = new TreeMap<>(keyOrder);
         int chr;
-        final SortedMap<String, Object> dictionary = new TreeMap<>();
-        while ((chr = inputStream.read()) != 'e') {
+        int count = 0;
+        while ((chr = input.peek()) != 'e') {
             if (chr == -1) {
-                throw streamEnded();
+                throw ByteInput.streamEnded();
             }
-            inputStream.unread(chr);
-            final String key = decodeString();
-            chr = inputStream.read();
-            inputStream.unread(chr);
-            dictionary.put(
-                    key,
-                    chr == 'd'
-                        ? decodeDict(innerByteStrings(key, byteStringsList))
-                        : byteStringsList.contains(key)
-                            ? decodeBytes()
-                            : decodeObject(chr));
+            input.limits().checkElements(++count);
+            final String key = keys.decode(input);
+            final boolean digesting = startDigest(key);
+            final int start = input.index();
+            input.skipValue(depth);
+            values.put(key, new LazyDict.Span(start, input.index()));
+            if (digesting) {
+                input.endCapture();
+            }
+        }
+        input.read();
+        depth--;
+        return values;
+    }
+
+    private boolean startDigest(final String key) {
+        final boolean digesting = depth == 1 && key.equals(digestKey);
+        if (digesting) {
+            input.startCapture(digest);
+        }
+        return digesting;
+    }
+
+    private Braw decodeRaw() throws IOException {
+        final int start = input.index();
+        input.skipValue(depth);
+        return new Braw(new LazyDict.Span(start, input.index()).of(input.source()));
+    }
+
+    private Object decodeBinary() throws IOException {
+        return slicing ? readByteBuffer() : readBytes();
+    }
+
+    private long readInt() throws IOException {
+        ensureFirstChar('i');
+        return input.readInteger();
+    }
+
+    private String readString() throws IOException {
+        return new String(readBytes(), charset);
+    }
+
+    private byte[] readBytes() throws IOException {
+        final int length = input.readLength();
+        final byte[] byteString = new byte[length];
+        if (input.read(byteString) != length) {
+            throw ByteInput.streamEnded();
+        }
+        return byteString;
+    }
+
+    private Bstring readCharSequence() throws IOException {
+        return new Bstring(readByteBuffer(), charset);
+    }
+
+    private ByteBuffer readByteBuffer() throws IOException {
+        final ByteBuffer byteString = input.slice(input.readLength());
+        if (byteString == null) {
+            throw ByteInput.streamEnded();
         }
-        return dictionary;
+        return byteString;
     }
 
     private void ensureFirstChar(final char expected) throws IOException {
-        int chr;
-        if ((chr = inputStream.read()) != expected) {
-            throw new IllegalStateException("Unexpected character occurred instead of '"
-                    + chr + "' or end of stream reached: " + (char) chr);
+        final int chr = input.read();
+        if (chr == -1) {
+            throw ByteInput.streamEnded();
+        }
+        if (chr != expected) {
+            throw new DecodingException(Bfailure.UNEXPECTED_CHARACTER,
+                    "Unexpected character occurred instead of '" + expected + "': " + (char) chr);
         }
     }
 
     private String[] innerByteStrings(final String key, final List<String> byteStringsList) {
+        final List<String> result = innerProperties(key, byteStringsList);
+        return result.toArray(new String[result.size()]);
+    }
+
+    private List<String> innerProperties(final String key, final Collection<String> properties) {
+        if (properties.isEmpty()) {
+            return Collections.emptyList();
+        }
         final List<String> result = new ArrayList<>();
-        for (final String propertyName : byteStringsList) {
-            if (propertyName.startsWith(key)) {
+        for (final String propertyName : properties) {
+            if (propertyName.length() > key.length() && propertyName.startsWith(key)
+                    && propertyName.charAt(key.length()) == '.') {
                 result.add(propertyName.substring(key.length() + 1));
             }
         }
-        return result.toArray(new String[result.size()]);
+        return result;
     }
 
     private Object decodeObject(final int chr) throws IOException {
         switch (chr) {
             case 'i':
-                return decodeInt();
+                return readInt();
             case 'l':
                 return decodeList();
             case 'd':
                 return decodeDict();
             default:
-                return decodeString();
+                return charSequences ? readCharSequence() : readString();
         }
     }
 
-    private IllegalStateException streamEnded() {
-        return new IllegalStateException("End of stream was reached prematurely");
+    /**
+     * List or dictionary being decoded.
+     */
+    private static final class Frame {
+
+        /**
+         * The list, {@code null} if the frame is a dictionary.
+         */
+        private List<Object> list;
+
+        /**
+         * The dictionary, {@code null} if the frame is a list.
+         */
+        private SortedMap<String, Object> dictionary;
+
+        /**
+         * Binary properties of the dictionary.
+         */
+        private List<String> byteStrings;
+
+        /**
+         * Properties of the dictionary to keep raw.
+         */
+        private List<String> raws;
+
+        /**
+         * Key of the dictionary value being decoded.
+         */
+        private String key;
+
+        /**
+         * Whether raw value of {@link #key} is being digested.
+         */
+        private boolean digesting;
+
+        /**
+         * Number of the elements or entries decoded so far.
+         */
+        private int count;
+
+        /**
+         * Starts decoding of either {@code list} or {@code dictionary}.
+         *
+         * @param startedList       the list or {@code null}
+         * @param startedDictionary the dictionary or {@code null}
+         * @param binaryProperties  binary properties of the dictionary
+         * @param rawKeys           properties of the dictionary to keep raw
+         */
+        void start(final List<Object> startedList,
+                final SortedMap<String, Object> startedDictionary,
+                final List<String> binaryProperties, final List<String> rawKeys) {
+            list = startedList;
+            dictionary = startedDictionary;
+            byteStrings = binaryProperties;
+            raws = rawKeys;
+            key = null;
+            digesting = false;
+            count = 0;
+        }
+
+        /**
+         * Adds decoded element or value of the current {@link #key}.
+         *
+         * @param value decoded value
+         * @return number of the elements or entries decoded so far
+         */
+        int add(final Object value) {
+            if (list == null) {
+                dictionary.put(key, value);
+                key = null;
+            } else {
+                list.add(value);
+            }
+            return ++count;
+        }
+
+        /**
+         * Ends decoding releasing the container.
+         *
+         * @return the decoded list or dictionary
+         */
+        Object end() {
+            final Object container = list == null ? dictionary : list;
+            list = null;
+            dictionary = null;
+            byteStrings = null;
+            raws = null;
+            return container;
+        }
     }
 }
@@ -1,19 +1,69 @@
 package org.benjamin;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.SortedMap;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Bencode data encoder.
  */
 public class Bencoder {
 
+    /**
+     * Size of the buffer encoded data is collected in before writing it to the stream.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Maximum number of characters in a decimal {@code long}.
+     */
+    private static final int MAX_NUMBER_LENGTH = 20;
+
+    /**
+     * Base of the Bencode numbers.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * The greatest ASCII character code.
+     */
+    private static final char MAX_ASCII = 0x7f;
+
+    /**
+     * Charsets encoding ASCII characters as is.
+     */
+    private static final List<Charset> ASCII_COMPATIBLE =
+            Arrays.asList(UTF_8, US_ASCII, ISO_8859_1);
+
+    /**
+     * Number of encoded dictionary keys to keep, a power of two.
+     */
+    private static final int KEY_CACHE_SIZE = 256;
+
+    /**
+     * Maximum length of an encoded dictionary key to keep.
+     */
+    private static final int MAX_CACHED_KEY_LENGTH = 64;
+
     /**
      * Used to encode {@code String}s.
      *
@@ -22,21 +72,169 @@ public class Bencoder {
     private final Charset charset;
 
     /**
-     * A stream to write encoded data to.
+     * Order of the dictionary keys.
+     */
+    private final KeyOrder keyOrder;
+
+    /**
+     * Recently encoded dictionary keys indexed by hash, so the keys repeated across
+     * dictionaries are encoded once.
+     */
+    private final String[] cachedKeys = new String[KEY_CACHE_SIZE];
+
+    /**
+     * Encoded forms of {@link #cachedKeys}.
+     */
+    private final byte[][] encodedKeys = new byte[KEY_CACHE_SIZE][];
+
+    /**
+     * Orders dictionary entries by their keys compared without encoding them.
+     */
+    private final Comparator<Map.Entry<?, ?>> entryOrder = new Comparator<Map.Entry<?, ?>>() {
+        @Override
+        public int compare(final Map.Entry<?, ?> first, final Map.Entry<?, ?> second) {
+            return keyOrder.compare((String) first.getKey(), (String) second.getKey());
+        }
+    };
+
+    /**
+     * Reusable encoder of {@link #charset}, {@code null} until a non-ASCII string is encoded.
      */
-    private final OutputStream outputStream;
+    private CharsetEncoder charsetEncoder;
+
+    /**
+     * Reusable buffer to encode non-ASCII strings to.
+     */
+    private ByteBuffer encodedString;
+
+    /**
+     * Whether ASCII characters are encoded as is by {@link #charset}.
+     */
+    private final boolean asciiCompatible;
+
+    /**
+     * A stream to write encoded data to, {@code null} if the encoder writes to a channel.
+     */
+    private OutputStream outputStream;
+
+    /**
+     * A channel to write encoded data to, {@code null} if the encoder writes to a stream.
+     */
+    private WritableByteChannel channel;
+
+    /**
+     * Encoded data not yet written to the stream or channel.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * {@link #buffer} wrapped to be written to a channel.
+     */
+    private final ByteBuffer bufferView = ByteBuffer.wrap(buffer);
+
+    /**
+     * Number of bytes in {@link #buffer}.
+     */
+    private int count;
+
+    /**
+     * Number of values being encoded as a part of lists and dictionaries.
+     */
+    private int nesting;
+
+    /**
+     * Listener of the encoded values, {@code null} unless set.
+     */
+    private Blistener listener;
+
+    /**
+     * Number of bytes written to the stream or channel since the top-level value started.
+     */
+    private long written;
+
+    /**
+     * Time encoding of the top-level value started at.
+     */
+    private long started;
 
     /**
      * Creates encoder writing to {@code outputStream} encoding {@code String}s in {@code charset}.
      *
+     * Encoded data is buffered until a value passed to an {@code encode} method is encoded
+     * completely, so the stream is written to in large chunks.
+     *
      * @param charset      charset used to encode characters
      * @param outputStream stream to encode data to
      */
     public Bencoder(final Charset charset, final OutputStream outputStream) {
         this.charset = charset;
+        this.keyOrder = new KeyOrder(charset);
+        this.asciiCompatible = ASCII_COMPATIBLE.contains(charset);
         this.outputStream = outputStream;
     }
 
+    /**
+     * Creates encoder writing to {@code channel} encoding {@code String}s in {@code charset}.
+     *
+     * Marker, length and other small bytes are collected in a buffer, large byte strings are
+     * written to the channel as they are, along with the buffer in a single gathering write if
+     * the channel supports it. {@code ByteBuffer}s, including memory mapped ones, thus aren't
+     * copied to heap, file content could be encoded with
+     * {@link #encode(FileChannel, long, long)}. The channel should be in blocking mode.
+     *
+     * @param charset charset used to encode characters
+     * @param channel channel to encode data to
+     */
+    public Bencoder(final Charset charset, final WritableByteChannel channel) {
+        this(charset, (OutputStream) null);
+        this.channel = channel;
+    }
+
+    /**
+     * Switches the encoder to write to {@code outputStream}, so the encoder, its internal buffer
+     * and encoded dictionary keys could be reused for another message.
+     *
+     * Data not yet written to the previous stream, if encoding failed, is discarded.
+     *
+     * @param outputStream stream to encode data to
+     * @return this Bencoder instance
+     */
+    public Bencoder reset(final OutputStream outputStream) {
+        this.outputStream = outputStream;
+        this.channel = null;
+        count = 0;
+        nesting = 0;
+        return this;
+    }
+
+    /**
+     * Switches the encoder to write to {@code channel}, see {@link #reset(OutputStream)}.
+     *
+     * @param channel channel to encode data to
+     * @return this Bencoder instance
+     */
+    public Bencoder reset(final WritableByteChannel channel) {
+        reset((OutputStream) null);
+        this.channel = channel;
+        return this;
+    }
+
+    /**
+     * Makes the encoder to report each encoded top-level value to {@code listener}.
+     *
+     * A value is reported once it's flushed, with the number of bytes written and the time
+     * spent encoding and writing it. Values failed to be encoded are not reported. The listener
+     * is kept when the encoder is reset.
+     *
+     * @param listener listener to report to or {@code null} to report nothing
+     * @return this Bencoder instance
+     * @see Bmetrics
+     */
+    public Bencoder listener(final Blistener listener) {
+        this.listener = listener;
+        return this;
+    }
+
     /**
      * Encodes integer value to Bencode.
      *
@@ -45,10 +243,15 @@ public class Bencoder {
      * @return this Bencoder instance
      */
     public Bencoder encode(final long integer) throws IOException {
-        write('i');
-        write(integer);
-        write('e');
-        return this;
+        final int level = startMeasuring();
+        try {
+            write('i');
+            write(integer);
+            write('e');
+            return flushed();
+        } finally {
+            restore(level);
+        }
     }
 
     /**
@@ -59,10 +262,18 @@ public class Bencoder {
      * @return this Bencoder instance
      */
     public Bencoder encode(final String string) throws IOException {
-        write(string.length());
-        write(':');
-        write(string.getBytes(charset));
-        return this;
+        final int level = startMeasuring();
+        try {
+            if (!asciiCompatible || !writeAscii(string)) {
+                final ByteBuffer bytes = encodeString(string);
+                write(bytes.remaining());
+                write(':');
+                write(bytes.array(), 0, bytes.remaining());
+            }
+            return flushed();
+        } finally {
+            restore(level);
+        }
     }
 
     /**
@@ -73,30 +284,103 @@ public class Bencoder {
      * @return this Bencoder instance
      */
     public Bencoder encode(final byte[] bytes) throws IOException {
-        write(bytes.length);
-        write(':');
-        write(bytes);
-        return this;
+        final int level = startMeasuring();
+        try {
+            write(bytes.length);
+            write(':');
+            write(bytes, 0, bytes.length);
+            return flushed();
+        } finally {
+            restore(level);
+        }
+    }
+
+    /**
+     * Encodes remaining bytes of {@code byteBuffer} as Bencode byte string.
+     *
+     * Position of the {@code byteBuffer} is not changed.
+     *
+     * @param byteBuffer bytes to encode
+     * @throws IOException if an I/O error occurs
+     * @return this Bencoder instance
+     */
+    public Bencoder encode(final ByteBuffer byteBuffer) throws IOException {
+        final int level = startMeasuring();
+        try {
+            write(byteBuffer.remaining());
+            write(':');
+            write(byteBuffer);
+            return flushed();
+        } finally {
+            restore(level);
+        }
+    }
+
+    /**
+     * Encodes {@code count} bytes of {@code file} starting from {@code position} as Bencode
+     * byte string.
+     *
+     * The content is transferred from the file by {@link FileChannel#transferTo}, so it isn't
+     * copied to heap if the encoder writes to a channel. Position of the {@code file} is not
+     * changed.
+     *
+     * @param file     file to encode content of
+     * @param position position of the first byte within the file
+     * @param length   number of bytes to encode
+     * @throws IOException if an I/O error occurs or the file has less than {@code length} bytes
+     *                     starting from {@code position}
+     * @return this Bencoder instance
+     */
+    public Bencoder encode(final FileChannel file, final long position, final long length)
+            throws IOException {
+        final int level = startMeasuring();
+        try {
+            write(length);
+            write(':');
+            flushBuffer();
+            final WritableByteChannel target = channel == null
+                    ? Channels.newChannel(outputStream)
+                    : channel;
+            long transferred = 0;
+            while (transferred < length) {
+                final long chunk = file.transferTo(position + transferred, length - transferred,
+                        target);
+                if (chunk <= 0 && position + transferred >= file.size()) {
+                    throw new EOFException("File ended before " + length + " bytes were encoded");
+                }
+                transferred += chunk;
+            }
+            written += transferred;
+            return flushed();
+        } finally {
+            restore(level);
+        }
     }
 
     /**
      * Encodes a list to Bencode.
      *
      * The {@code list} could contain objects of types supported in Bencode: {@code Integer}s,
-     * {@code String}s, {@code byte} arrays, {@code Map}s with {@code String} keys or another
-     * {@code List}s meet the same criteria.
+     * {@code String}s, {@link Bstring}s, {@code byte} arrays, {@code ByteBuffer}s, {@link Bnode}s,
+     * {@code FileChannel}s whose whole content is encoded, {@link Braw} values written verbatim,
+     * {@code Map}s with {@code String} keys or another {@code List}s meet the same criteria.
      *
      * @param list list to encode
      * @throws IOException if an I/O error occurs
      * @return this Bencoder instance
      */
     public Bencoder encode(final List<?> list) throws IOException {
-        write('l');
-        for (final Object object : list) {
-            encodeObject(object);
+        final int level = startMeasuring();
+        try {
+            write('l');
+            for (final Object object : list) {
+                encodeObject(object);
+            }
+            write('e');
+            return flushed();
+        } finally {
+            restore(level);
         }
-        write('e');
-        return this;
     }
 
     /**
@@ -105,18 +389,107 @@ public class Bencoder {
      * Map values should meet the same requirements as for lists.
      * See {@link #encode(java.util.List)}.
      *
+     * Accordingly to the Bencode specification, keys are sorted as raw strings. Entries of
+     * a {@code SortedMap} already in that order, like the ones returned by {@link Bdecoder},
+     * are encoded in iteration order, other maps are sorted first.
+     *
      * @param dictionary dictionary to encode represented as {@code Map}
      * @throws IOException if an I/O error occurs
      * @return this Bencoder instance
      */
     public Bencoder encode(final Map<String, ?> dictionary) throws IOException {
-        write('d');
-        for (final Map.Entry<String, Object> entry : new TreeMap<>(dictionary).entrySet()) {
-            encode(entry.getKey());
-            encodeObject(entry.getValue());
+        final int level = startMeasuring();
+        try {
+            write('d');
+            for (final Map.Entry<?, ?> entry : entries(dictionary)) {
+                writeKey(entry.getKey());
+                encodeObject(entry.getValue());
+            }
+            write('e');
+            return flushed();
+        } finally {
+            restore(level);
         }
+    }
+
+    /**
+     * Encodes tree of typed nodes to Bencode.
+     *
+     * @param node root node of the tree to encode
+     * @throws IOException if an I/O error occurs
+     * @return this Bencoder instance
+     * @see Bdecoder#decodeNode()
+     */
+    public Bencoder encode(final Bnode node) throws IOException {
+        final int level = startMeasuring();
+        try {
+            writeNode(node);
+            return flushed();
+        } finally {
+            restore(level);
+        }
+    }
+
+    /**
+     * Encodes fields of {@code object} as a dictionary without building a {@code Map}.
+     *
+     * @param <T>     class of the object
+     * @param object  object to encode
+     * @param binding binding of the object class
+     * @throws IOException if an I/O error occurs
+     * @return this Bencoder instance
+     * @see Bdecoder#decode(Bbinding)
+     */
+    public <T> Bencoder encode(final T object, final Bbinding<T> binding) throws IOException {
+        final int level = startMeasuring();
+        try {
+            binding.encodeObject(object, this);
+            return this;
+        } finally {
+            restore(level);
+        }
+    }
+
+    /**
+     * Encodes any value supported by {@link #encode(List)}.
+     *
+     * @param object object to encode to Bencode
+     * @return this Bencoder instance
+     * @throws IOException if an I/O error occurs
+     */
+    Bencoder encodeValue(final Object object) throws IOException {
+        final int level = startMeasuring();
+        try {
+            encodeObject(object);
+            return flushed();
+        } finally {
+            restore(level);
+        }
+    }
+
+    /**
+     * Starts a list or a dictionary whose items are encoded one by one, see {@link Bwriter}.
+     *
+     * The data is not flushed until the matching {@link #end()}, unless the buffer gets full.
+     *
+     * @param marker {@code 'l'} or {@code 'd'}
+     * @throws IOException if an I/O error occurs
+     */
+    void begin(final char marker) throws IOException {
+        startMeasuring();
+        nesting++;
+        write(marker);
+    }
+
+    /**
+     * Ends a container started with {@link #begin(char)}.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void end() throws IOException {
         write('e');
-        return this;
+        nesting--;
+        flushed();
     }
 
     /**
@@ -127,33 +500,395 @@ public class Bencoder {
      */
     @SuppressWarnings("unchecked")
     private void encodeObject(final Object object) throws IOException {
-        if (object instanceof Long || object instanceof Integer
-                || object instanceof Short || object instanceof Byte) {
-            encode(((Number) object).longValue());
-        } else if (object instanceof String) {
-            encode((String) object);
-        } else if (object.getClass().equals(byte[].class)) {
-            encode((byte[]) object);
-        } else if (object instanceof List) {
-            encode((List<Object>) object);
-        } else if (object instanceof Map) {
-            encode((Map<String, Object>) object);
+        // nested values are flushed to the stream along with the enclosing one
+        nesting++;
+        try {
+            if (object instanceof Long || object instanceof Integer
+                    || object instanceof Short || object instanceof Byte) {
+                encode(((Number) object).longValue());
+            } else if (object instanceof String) {
+                encode((String) object);
+            } else if (object.getClass().equals(byte[].class)) {
+                encode((byte[]) object);
+            } else if (object instanceof ByteBuffer) {
+                encode((ByteBuffer) object);
+            } else if (object instanceof Bstring) {
+                encode(((Bstring) object).bytes());
+            } else if (object instanceof Braw) {
+                write(((Braw) object).content());
+            } else if (object instanceof List) {
+                encode((List<Object>) object);
+            } else if (object instanceof Map) {
+                encode((Map<String, Object>) object);
+            } else if (object instanceof Bnode) {
+                writeNode((Bnode) object);
+            } else if (object instanceof FileChannel) {
+                encode((FileChannel) object, 0, ((FileChannel) object).size());
+            } else {
+                throw new IllegalArgumentException(
+                        "Object of Bencode unsupported type found in the arguments: '" + object
+                        + "' of type " + object.getClass());
+            }
+        } finally {
+            nesting--;
+        }
+    }
+
+    private void writeNode(final Bnode node) throws IOException {
+        if (node instanceof Bnode.IntNode) {
+            write('i');
+            write(node.intValue());
+            write('e');
+        } else if (node instanceof Bnode.BytesNode) {
+            final Bnode.BytesNode bytes = (Bnode.BytesNode) node;
+            write(bytes.length());
+            write(':');
+            write(bytes.array(), bytes.offset(), bytes.length());
+        } else if (node instanceof Bnode.ListNode) {
+            write('l');
+            for (int i = 0; i < node.size(); i++) {
+                writeNode(node.get(i));
+            }
+            write('e');
+        } else {
+            // keys of dictionary nodes are ordered already
+            write('d');
+            for (int i = 0; i < node.size(); i++) {
+                writeNode(node.key(i));
+                writeNode(node.value(i));
+            }
+            write('e');
+        }
+    }
+
+    /**
+     * Returns entries of {@code dictionary} in the order they should be encoded.
+     *
+     * @param dictionary dictionary to encode
+     * @return entries ordered by raw bytes of the keys
+     */
+    Collection<? extends Map.Entry<?, ?>> entries(final Map<String, ?> dictionary) {
+        return inKeyOrder(dictionary) ? dictionary.entrySet() : sortedEntries(dictionary);
+    }
+
+    /**
+     * Returns order of the dictionary keys encoded by the encoder.
+     *
+     * @return order of the keys
+     */
+    KeyOrder keyOrder() {
+        return keyOrder;
+    }
+
+    private boolean inKeyOrder(final Map<String, ?> dictionary) {
+        if (!(dictionary instanceof SortedMap)) {
+            return false;
+        }
+        final Comparator<?> comparator = ((SortedMap<String, ?>) dictionary).comparator();
+        if (keyOrder.equals(comparator)) {
+            return true;
+        }
+        if (comparator != null) {
+            return false;
+        }
+        // natural order of strings differs from the raw one only for some non-ASCII keys
+        String previous = null;
+        for (final Object key : dictionary.keySet()) {
+            final String current = stringKey(key);
+            if (previous != null && keyOrder.compare(previous, current) > 0) {
+                return false;
+            }
+            previous = current;
+        }
+        return true;
+    }
+
+    private List<Map.Entry<?, ?>> sortedEntries(final Map<?, ?> dictionary) {
+        final Map.Entry<?, ?>[] entries =
+                dictionary.entrySet().toArray(new Map.Entry<?, ?>[dictionary.size()]);
+        if (keyOrder.isCodePointOrder()) {
+            for (final Map.Entry<?, ?> entry : entries) {
+                stringKey(entry.getKey());
+            }
+            Arrays.sort(entries, entryOrder);
         } else {
+            // keys are encoded once rather than on each comparison
+            final EncodedEntry[] encoded = new EncodedEntry[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                encoded[i] = new EncodedEntry(encodeKey(entries[i].getKey()), entries[i]);
+            }
+            Arrays.sort(encoded);
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = encoded[i].entry;
+            }
+        }
+        return Arrays.asList(entries);
+    }
+
+    void writeKey(final Object key) throws IOException {
+        if (!(key instanceof String) || !asciiCompatible || !writeAscii((String) key)) {
+            final byte[] bytes = encodeKey(key);
+            write(bytes.length);
+            write(':');
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    byte[] encodeKey(final Object key) {
+        final String string = stringKey(key);
+        final int slot = string.hashCode() & KEY_CACHE_SIZE - 1;
+        if (string.equals(cachedKeys[slot])) {
+            return encodedKeys[slot];
+        }
+        final byte[] bytes = string.getBytes(charset);
+        if (bytes.length <= MAX_CACHED_KEY_LENGTH) {
+            cachedKeys[slot] = string;
+            encodedKeys[slot] = bytes;
+        }
+        return bytes;
+    }
+
+    private static String stringKey(final Object key) {
+        if (!(key instanceof String)) {
             throw new IllegalArgumentException(
-                    "Object of Bencode unsupported type found in the arguments: '" + object
-                    + "' of type " + object.getClass());
+                    "Dictionary key of Bencode unsupported type found: '" + key + "' of type "
+                    + (key == null ? null : key.getClass()));
         }
+        return (String) key;
     }
 
-    private void write(final Number number) throws IOException {
-        write(String.valueOf(number).getBytes(US_ASCII));
+    private int startMeasuring() {
+        if (listener != null && nesting == 0) {
+            written = 0;
+            started = System.nanoTime();
+        }
+        return nesting;
+    }
+
+    /**
+     * Restores nesting of a value started at {@code level} once it's encoded or failed.
+     *
+     * Bytes of a failed top-level value are dropped, so they aren't flushed ahead of the next
+     * value. Bytes of a succeeded one are flushed already.
+     *
+     * @param level nesting the value is started at
+     */
+    private void restore(final int level) {
+        nesting = level;
+        if (level == 0) {
+            count = 0;
+        }
+    }
+
+    private Bencoder flushed() throws IOException {
+        if (nesting == 0) {
+            flushBuffer();
+            if (listener != null) {
+                listener.encoded(written, System.nanoTime() - started);
+            }
+        }
+        return this;
+    }
+
+    private ByteBuffer encodeString(final String string) {
+        if (charsetEncoder == null) {
+            charsetEncoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            encodedString = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        final int maxLength = (int) Math.ceil(string.length() * charsetEncoder.maxBytesPerChar());
+        if (encodedString.capacity() < maxLength) {
+            encodedString = ByteBuffer.allocate(maxLength);
+        }
+        encodedString.clear();
+        charsetEncoder.reset();
+        final CharBuffer chars = CharBuffer.wrap(string);
+        charsetEncoder.encode(chars, encodedString, true);
+        charsetEncoder.flush(encodedString);
+        encodedString.flip();
+        return encodedString;
+    }
+
+    private void write(final long number) throws IOException {
+        if (BUFFER_SIZE - count < MAX_NUMBER_LENGTH) {
+            flushBuffer();
+        }
+        // digits are produced from negative value to handle Long.MIN_VALUE
+        long remainder = number;
+        if (number < 0) {
+            buffer[count++] = '-';
+        } else {
+            remainder = -number;
+        }
+        int digits = 1;
+        for (long bound = -RADIX; digits < MAX_NUMBER_LENGTH - 1 && remainder <= bound;
+                bound *= RADIX) {
+            digits++;
+        }
+        count += digits;
+        int index = count;
+        while (remainder < Integer.MIN_VALUE) {
+            buffer[--index] = (byte) ('0' - remainder % RADIX);
+            remainder /= RADIX;
+        }
+        // the rest of digits are computed using cheaper int arithmetic
+        for (int rest = (int) remainder; index > count - digits; rest /= RADIX) {
+            buffer[--index] = (byte) ('0' - rest % RADIX);
+        }
     }
 
     private void write(final char chr) throws IOException {
-        outputStream.write(chr);
+        if (count == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) chr;
+    }
+
+    /**
+     * Encodes {@code string} copying its characters to the buffer if all of them are ASCII.
+     *
+     * @param string string to encode
+     * @return {@code false} if nothing was written as the string contains non-ASCII characters
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean writeAscii(final String string) throws IOException {
+        final int length = string.length();
+        if (length + MAX_NUMBER_LENGTH >= BUFFER_SIZE) {
+            return false;
+        }
+        if (length + MAX_NUMBER_LENGTH > BUFFER_SIZE - count) {
+            flushBuffer();
+        }
+        final int start = count;
+        write(length);
+        write(':');
+        for (int i = 0; i < length; i++) {
+            final char chr = string.charAt(i);
+            if (chr > MAX_ASCII) {
+                count = start;
+                return false;
+            }
+            buffer[count + i] = (byte) chr;
+        }
+        count += length;
+        return true;
     }
 
-    private void write(final byte[] bytes) throws IOException {
-        outputStream.write(bytes);
+    private void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length >= BUFFER_SIZE) {
+            writeThrough(ByteBuffer.wrap(bytes, offset, length));
+            return;
+        }
+        if (length > BUFFER_SIZE - count) {
+            flushBuffer();
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    private void write(final ByteBuffer byteBuffer) throws IOException {
+        if (byteBuffer.hasArray()) {
+            write(byteBuffer.array(),
+                    byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining());
+        } else if (byteBuffer.remaining() >= BUFFER_SIZE) {
+            writeThrough(byteBuffer.duplicate());
+        } else {
+            copy(byteBuffer.duplicate());
+        }
+    }
+
+    /**
+     * Writes the buffered data followed by {@code content} bypassing the buffer if possible.
+     *
+     * @param content bytes to write, consumed
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeThrough(final ByteBuffer content) throws IOException {
+        if (channel == null) {
+            if (content.hasArray()) {
+                flushBuffer();
+                written += content.remaining();
+                outputStream.write(content.array(), content.arrayOffset() + content.position(),
+                        content.remaining());
+            } else {
+                copy(content);
+            }
+        } else if (channel instanceof GatheringByteChannel) {
+            final ByteBuffer[] buffers = {buffered(), content};
+            written += count + content.remaining();
+            while (content.hasRemaining()) {
+                ((GatheringByteChannel) channel).write(buffers);
+            }
+            count = 0;
+        } else {
+            flushBuffer();
+            written += content.remaining();
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    private void copy(final ByteBuffer content) throws IOException {
+        while (content.hasRemaining()) {
+            if (count == BUFFER_SIZE) {
+                flushBuffer();
+            }
+            final int length = Math.min(content.remaining(), BUFFER_SIZE - count);
+            content.get(buffer, count, length);
+            count += length;
+        }
+    }
+
+    private ByteBuffer buffered() {
+        bufferView.clear();
+        bufferView.limit(count);
+        return bufferView;
+    }
+
+    private void flushBuffer() throws IOException {
+        written += count;
+        if (channel == null) {
+            outputStream.write(buffer, 0, count);
+        } else {
+            final ByteBuffer data = buffered();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * Dictionary entry along with its encoded key, ordered by raw bytes of the key.
+     */
+    private static final class EncodedEntry implements Comparable<EncodedEntry> {
+
+        /**
+         * Encoded key of the entry.
+         */
+        private final byte[] key;
+
+        /**
+         * The entry itself.
+         */
+        private final Map.Entry<?, ?> entry;
+
+        /**
+         * Pairs {@code entry} with its encoded key.
+         *
+         * @param key   encoded key of the entry
+         * @param entry the entry
+         */
+        EncodedEntry(final byte[] key, final Map.Entry<?, ?> entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(final EncodedEntry other) {
+            return KeyOrder.compare(key, other.key);
+        }
     }
 }
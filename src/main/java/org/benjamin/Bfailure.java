@@ -0,0 +1,76 @@
+package org.benjamin;
+
+import java.io.IOException;
+
+/**
+ * Cause of a failed decoding reported to {@link Blistener}.
+ *
+ * The decoders report malformed data with {@code IllegalStateException} or
+ * {@code NumberFormatException}, the category tells the causes apart without parsing
+ * the messages.
+ */
+public enum Bfailure {
+
+    /**
+     * Integer with leading zeros, e.g. {@code i042e}.
+     */
+    ZERO_PADDING,
+
+    /**
+     * Integer {@code i-0e}.
+     */
+    NEGATIVE_ZERO,
+
+    /**
+     * Data ended within a value.
+     */
+    PREMATURE_END,
+
+    /**
+     * Character not allowed at its place, e.g. a letter within a number or an unknown marker.
+     */
+    UNEXPECTED_CHARACTER,
+
+    /**
+     * Number which doesn't fit in its type.
+     */
+    OUT_OF_RANGE,
+
+    /**
+     * A limit set with {@link Bdecoder#limits(Blimits)} was exceeded.
+     */
+    LIMIT_EXCEEDED,
+
+    /**
+     * Reading of the source failed.
+     */
+    IO,
+
+    /**
+     * Any other failure, e.g. of a bound object.
+     */
+    OTHER;
+
+    /**
+     * Tells category of {@code error} thrown by a decoder.
+     *
+     * Malformed data and exceeded limits are tagged with the category where they are found,
+     * exceptions wrapping the actual cause, e.g. failed decoding of a lazy value, are
+     * categorized by the cause.
+     *
+     * @param error exception thrown
+     * @return category of the failure
+     */
+    static Bfailure of(final Throwable error) {
+        if (error instanceof IOException) {
+            return IO;
+        }
+        if (error instanceof DecodingException) {
+            return ((DecodingException) error).failure();
+        }
+        if (error instanceof NumberDecodingException) {
+            return ((NumberDecodingException) error).failure();
+        }
+        return error.getCause() == null ? OTHER : of(error.getCause());
+    }
+}
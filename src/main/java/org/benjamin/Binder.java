@@ -0,0 +1,343 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Decoder and encoder of the values of a bound field type, see {@link Bbinding}.
+ *
+ * Binders are chosen once per field by the declared type, so decoding doesn't look at the
+ * values to tell how to convert them.
+ */
+abstract class Binder {
+
+    /**
+     * Binder of {@code long} and {@code Long} fields.
+     */
+    private static final Binder LONG = new Scalar() {
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            return decoder.decodeInt();
+        }
+    };
+
+    /**
+     * Binder of {@code int} and {@code Integer} fields, integers out of the range are invalid.
+     */
+    private static final Binder INT = new Scalar() {
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            final long integer = decoder.decodeInt();
+            if ((int) integer != integer) {
+                throw new DecodingException(Bfailure.OUT_OF_RANGE,
+                        "Integer " + integer + " is out of int range");
+            }
+            return (int) integer;
+        }
+    };
+
+    /**
+     * Binder of {@code String} fields.
+     */
+    private static final Binder STRING = new Scalar() {
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            return decoder.decodeString();
+        }
+    };
+
+    /**
+     * Binder of {@link Bstring} and {@code CharSequence} fields.
+     */
+    private static final Binder CHARS = new Scalar() {
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            return decoder.decodeCharSequence();
+        }
+    };
+
+    /**
+     * Binder of {@code byte[]} fields.
+     */
+    private static final Binder BYTES = new Scalar() {
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            return decoder.decodeBytes();
+        }
+    };
+
+    /**
+     * Binder of {@code ByteBuffer} fields.
+     */
+    private static final Binder BUFFER = new Scalar() {
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            return decoder.decodeByteBuffer();
+        }
+    };
+
+    /**
+     * Binder of {@link Bnode} fields.
+     */
+    private static final Binder NODE = new Scalar() {
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            return decoder.decodeNode();
+        }
+    };
+
+    /**
+     * Binder of {@code Object}, raw {@code List} and {@code Map} fields decoded as usual.
+     */
+    private static final Binder ANY = new Scalar() {
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            return decoder.decodeObject();
+        }
+    };
+
+    /**
+     * Decodes the next value.
+     *
+     * @param decoder decoder to read the value from
+     * @return value to set to a field
+     * @throws IOException if an I/O error occurs
+     */
+    abstract Object decode(Bdecoder decoder) throws IOException;
+
+    /**
+     * Encodes value of a field.
+     *
+     * @param value   value to encode
+     * @param encoder encoder to write the value to
+     * @throws IOException if an I/O error occurs
+     */
+    abstract void encode(Object value, Bencoder encoder) throws IOException;
+
+    /**
+     * Returns binder of the values of {@code type}.
+     *
+     * @param type declared type of a field or of list elements
+     * @return binder of the type
+     * @throws IllegalArgumentException if the type is not supported
+     */
+    static Binder of(final Type type) {
+        if (type instanceof ParameterizedType) {
+            final Type raw = ((ParameterizedType) type).getRawType();
+            final Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (raw == List.class) {
+                return new ListBinder(of(arguments[0]));
+            }
+            if ((raw == Map.class || raw == SortedMap.class) && arguments[0] == String.class) {
+                return new MapBinder(of(arguments[1]));
+            }
+        } else if (type instanceof Class) {
+            final Binder binder = scalar((Class<?>) type);
+            if (binder != null) {
+                return binder;
+            }
+            if (isBindable((Class<?>) type)) {
+                return new BoundBinder((Class<?>) type);
+            }
+        }
+        throw new IllegalArgumentException("Field of Bencode unsupported type found: " + type);
+    }
+
+    /**
+     * Tells whether {@code type} could be bound as a dictionary by {@link Bbinding}.
+     *
+     * Primitives, arrays, interfaces, abstract classes, enums and the classes of the platform,
+     * e.g. wrappers of the primitives or {@code Date}, are not, their fields aren't meant to be
+     * set one by one.
+     *
+     * @param type class to bind
+     * @return {@code true} if the class could be bound
+     */
+    static boolean isBindable(final Class<?> type) {
+        final String name = type.getName();
+        return !type.isPrimitive() && !type.isArray() && !type.isEnum()
+                && (type.getModifiers() & (Modifier.INTERFACE | Modifier.ABSTRACT)) == 0
+                && !name.startsWith("java.") && !name.startsWith("javax.");
+    }
+
+    /**
+     * Adds the bound classes the values are made of to {@code types}.
+     *
+     * @param types classes to add to
+     */
+    void collectBound(final Collection<Class<?>> types) {
+        // scalars are not made of bound classes
+    }
+
+    private static Binder scalar(final Class<?> type) {
+        if (type == long.class || type == Long.class) {
+            return LONG;
+        } else if (type == int.class || type == Integer.class) {
+            return INT;
+        } else if (type == String.class) {
+            return STRING;
+        } else if (type == Bstring.class || type == CharSequence.class) {
+            return CHARS;
+        } else if (type == byte[].class) {
+            return BYTES;
+        } else if (type == ByteBuffer.class) {
+            return BUFFER;
+        } else if (type == Bnode.class) {
+            return NODE;
+        } else if (type == Object.class || type == List.class || type == Map.class
+                || type == SortedMap.class) {
+            return ANY;
+        }
+        return null;
+    }
+
+    /**
+     * Binder of the values {@link Bencoder} encodes as they are.
+     */
+    private abstract static class Scalar extends Binder {
+
+        @Override
+        void encode(final Object value, final Bencoder encoder) throws IOException {
+            encoder.encodeValue(value);
+        }
+    }
+
+    /**
+     * Binder of lists of bound elements.
+     */
+    private static final class ListBinder extends Binder {
+
+        /**
+         * Binder of the elements.
+         */
+        private final Binder elements;
+
+        /**
+         * Creates binder of lists.
+         *
+         * @param elements binder of the elements
+         */
+        ListBinder(final Binder elements) {
+            super();
+            this.elements = elements;
+        }
+
+        @Override
+        void collectBound(final Collection<Class<?>> types) {
+            elements.collectBound(types);
+        }
+
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            final List<Object> list = new ArrayList<>();
+            decoder.begin('l');
+            while (decoder.hasNext(list.size())) {
+                list.add(elements.decode(decoder));
+            }
+            return list;
+        }
+
+        @Override
+        void encode(final Object value, final Bencoder encoder) throws IOException {
+            encoder.begin('l');
+            for (final Object element : (List<?>) value) {
+                elements.encode(element, encoder);
+            }
+            encoder.end();
+        }
+    }
+
+    /**
+     * Binder of dictionaries of bound values.
+     */
+    private static final class MapBinder extends Binder {
+
+        /**
+         * Binder of the values.
+         */
+        private final Binder values;
+
+        /**
+         * Creates binder of dictionaries.
+         *
+         * @param values binder of the values
+         */
+        MapBinder(final Binder values) {
+            super();
+            this.values = values;
+        }
+
+        @Override
+        void collectBound(final Collection<Class<?>> types) {
+            values.collectBound(types);
+        }
+
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            final SortedMap<String, Object> dictionary = new TreeMap<>(decoder.keyOrder());
+            decoder.begin('d');
+            while (decoder.hasNext(dictionary.size())) {
+                final String key = decoder.decodeKey();
+                dictionary.put(key, values.decode(decoder));
+            }
+            return dictionary;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void encode(final Object value, final Bencoder encoder) throws IOException {
+            encoder.begin('d');
+            for (final Map.Entry<?, ?> entry : encoder.entries((Map<String, ?>) value)) {
+                encoder.writeKey(entry.getKey());
+                values.encode(entry.getValue(), encoder);
+            }
+            encoder.end();
+        }
+    }
+
+    /**
+     * Binder of nested bound objects.
+     */
+    private static final class BoundBinder extends Binder {
+
+        /**
+         * Class of the objects, its binding is looked up on use to allow recursive types, it's
+         * checked once the enclosing binding is created.
+         */
+        private final Class<?> type;
+
+        /**
+         * Creates binder of the objects of {@code type}.
+         *
+         * @param type class of the objects
+         */
+        BoundBinder(final Class<?> type) {
+            super();
+            this.type = type;
+        }
+
+        @Override
+        void collectBound(final Collection<Class<?>> types) {
+            types.add(type);
+        }
+
+        @Override
+        Object decode(final Bdecoder decoder) throws IOException {
+            return Bbinding.of(type).decode(decoder);
+        }
+
+        @Override
+        void encode(final Object value, final Bencoder encoder) throws IOException {
+            Bbinding.of(type).encodeObject(value, encoder);
+        }
+    }
+}
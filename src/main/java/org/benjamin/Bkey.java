@@ -0,0 +1,29 @@
+package org.benjamin;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Dictionary key of a field bound by {@link Bbinding}, needed when the key is not a valid Java
+ * identifier or differs from the field name:
+ *
+ * <pre>
+ * &#64;Bkey("piece length")
+ * private long pieceLength;
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Bkey {
+
+    /**
+     * Returns the dictionary key.
+     *
+     * @return key of the field
+     */
+    String value();
+}
@@ -0,0 +1,151 @@
+package org.benjamin;
+
+/**
+ * Bounds of the resources a decoder may spend on a single source of data.
+ *
+ * Hostile input could claim a byte string of gigabytes or nest lists deeper than the thread
+ * stack allows. With limits set, {@link Bdecoder} checks the claims before allocating anything
+ * and throws {@code IllegalStateException} once a limit is exceeded, so the worst-case memory
+ * per decoded message is predictable:
+ *
+ * <pre>
+ * private static final Blimits LIMITS = Blimits.UNLIMITED
+ *     .maxStringLength(1 &lt;&lt; 20)
+ *     .maxTotalBytes(4 &lt;&lt; 20)
+ *     .maxDepth(32)
+ *     .maxElements(100_000);
+ * ...
+ * new Bdecoder(UTF_8, inputStream).limits(LIMITS).decodeDict();
+ * </pre>
+ *
+ * Limits are immutable, each setter returns a modified copy, so an instance could be shared
+ * across decoders and threads.
+ */
+public final class Blimits {
+
+    /**
+     * No limits, the default of the decoders.
+     */
+    public static final Blimits UNLIMITED =
+            new Blimits(Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    /**
+     * Maximum length of a byte string.
+     */
+    private final int maxStringLength;
+
+    /**
+     * Maximum number of bytes read from a source.
+     */
+    private final long maxTotalBytes;
+
+    /**
+     * Maximum number of lists and dictionaries nested in each other.
+     */
+    private final int maxDepth;
+
+    /**
+     * Maximum number of elements of a list or entries of a dictionary.
+     */
+    private final int maxElements;
+
+    private Blimits(final int maxStringLength, final long maxTotalBytes, final int maxDepth,
+            final int maxElements) {
+        this.maxStringLength = maxStringLength;
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxDepth = maxDepth;
+        this.maxElements = maxElements;
+    }
+
+    /**
+     * Limits length of byte strings, checked before the content is read.
+     *
+     * @param length maximum number of bytes of a byte string
+     * @return limits with the modified maximum
+     */
+    public Blimits maxStringLength(final int length) {
+        return new Blimits(length, maxTotalBytes, maxDepth, maxElements);
+    }
+
+    /**
+     * Limits number of bytes consumed from a source since the decoder was created or reset.
+     *
+     * @param count maximum number of bytes
+     * @return limits with the modified maximum
+     */
+    public Blimits maxTotalBytes(final long count) {
+        return new Blimits(maxStringLength, count, maxDepth, maxElements);
+    }
+
+    /**
+     * Limits number of lists and dictionaries nested in each other, a top-level list has depth
+     * of one.
+     *
+     * @param depth maximum nesting depth
+     * @return limits with the modified maximum
+     */
+    public Blimits maxDepth(final int depth) {
+        return new Blimits(maxStringLength, maxTotalBytes, depth, maxElements);
+    }
+
+    /**
+     * Limits number of elements of a list or entries of a dictionary.
+     *
+     * @param count maximum number of elements
+     * @return limits with the modified maximum
+     */
+    public Blimits maxElements(final int count) {
+        return new Blimits(maxStringLength, maxTotalBytes, maxDepth, count);
+    }
+
+    /**
+     * Checks length of a byte string about to be read.
+     *
+     * @param length   length of the byte string
+     * @param consumed number of bytes consumed from the source so far
+     */
+    void checkString(final int length, final long consumed) {
+        if (length > maxStringLength) {
+            throw exceeded("Byte string length " + length, maxStringLength);
+        }
+        checkTotal(consumed + length);
+    }
+
+    /**
+     * Checks number of bytes consumed from a source.
+     *
+     * @param consumed number of bytes consumed so far
+     */
+    void checkTotal(final long consumed) {
+        if (consumed > maxTotalBytes) {
+            throw exceeded("Data length " + consumed, maxTotalBytes);
+        }
+    }
+
+    /**
+     * Checks nesting depth of a container about to be decoded.
+     *
+     * @param depth depth of the container
+     */
+    void checkDepth(final int depth) {
+        if (depth > maxDepth) {
+            throw exceeded("Nesting depth " + depth, maxDepth);
+        }
+    }
+
+    /**
+     * Checks number of elements of a container.
+     *
+     * @param count number of the elements decoded so far
+     */
+    void checkElements(final int count) {
+        if (count > maxElements) {
+            throw exceeded("Number of elements " + count, maxElements);
+        }
+    }
+
+    private static IllegalStateException exceeded(final String what, final long limit) {
+        return new DecodingException(Bfailure.LIMIT_EXCEEDED,
+                what + " exceeds the limit of " + limit);
+    }
+}
@@ -0,0 +1,38 @@
+package org.benjamin;
+
+/**
+ * Receiver of the statistics of the values decoded by {@link Bdecoder} and encoded by
+ * {@link Bencoder}, see {@link Bdecoder#listener(Blistener)}.
+ *
+ * The listener is called in the thread decoding or encoding the value, once the value passed
+ * to or returned from a public method is complete, so it should be cheap and, if shared by
+ * decoders of different threads, thread-safe. {@link Bmetrics} aggregates the statistics and
+ * exposes them through JMX, other implementations could e.g. emit the statistics as events
+ * of a profiler to correlate decoding with GC pauses.
+ */
+public interface Blistener {
+
+    /**
+     * Called once a top-level value is decoded.
+     *
+     * @param stats statistics of the value, valid during the call only
+     */
+    void decoded(Bstats stats);
+
+    /**
+     * Called once decoding of a top-level value fails, before the exception is thrown.
+     *
+     * @param failure category of the failure
+     * @param error   exception about to be thrown
+     * @param stats   statistics of the data read before the failure, valid during the call only
+     */
+    void failed(Bfailure failure, Exception error, Bstats stats);
+
+    /**
+     * Called once a top-level value is encoded and flushed.
+     *
+     * @param bytes number of bytes written
+     * @param nanos time spent encoding and writing, in nanoseconds
+     */
+    void encoded(long bytes, long nanos);
+}
@@ -0,0 +1,243 @@
+package org.benjamin;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Listener aggregating the statistics of any number of decoders and encoders, exposed as
+ * an MXBean.
+ *
+ * The counters are updated atomically, so a single instance could be shared by the decoders
+ * and encoders of all the threads and watched with JConsole or any other JMX client:
+ *
+ * <pre>
+ * Bmetrics metrics = new Bmetrics();
+ * metrics.register("torrents");
+ * ...
+ * new Bdecoder(UTF_8, inputStream).listener(metrics).decodeDict();
+ * </pre>
+ */
+public final class Bmetrics implements Blistener, BmetricsMXBean {
+
+    /**
+     * Number of top-level values decoded.
+     */
+    private final AtomicLong decoded = new AtomicLong();
+
+    /**
+     * Number of failures per {@link Bfailure} ordinal.
+     */
+    private final AtomicLongArray failures = new AtomicLongArray(Bfailure.values().length);
+
+    /**
+     * Number of bytes consumed by decoders.
+     */
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    /**
+     * Number of integers read.
+     */
+    private final AtomicLong integers = new AtomicLong();
+
+    /**
+     * Number of byte strings read.
+     */
+    private final AtomicLong byteStrings = new AtomicLong();
+
+    /**
+     * Number of lists read.
+     */
+    private final AtomicLong lists = new AtomicLong();
+
+    /**
+     * Number of dictionaries read.
+     */
+    private final AtomicLong dictionaries = new AtomicLong();
+
+    /**
+     * The deepest nesting read.
+     */
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    /**
+     * Length of the longest byte string read.
+     */
+    private final AtomicInteger maxStringLength = new AtomicInteger();
+
+    /**
+     * Time spent decoding in nanoseconds.
+     */
+    private final AtomicLong decodeNanos = new AtomicLong();
+
+    /**
+     * Number of top-level values encoded.
+     */
+    private final AtomicLong encoded = new AtomicLong();
+
+    /**
+     * Number of bytes written by encoders.
+     */
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * Time spent encoding in nanoseconds.
+     */
+    private final AtomicLong encodeNanos = new AtomicLong();
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     *
+     * @param name value of the {@code name} key of the object name, distinguishing the metrics
+     *             of different kinds of data
+     * @return name the metrics are registered under,
+     *         {@code org.benjamin:type=Bmetrics,name=<name>}
+     * @throws JMException if the metrics can't be registered, e.g. the name is taken already
+     */
+    public ObjectName register(final String name) throws JMException {
+        final ObjectName objectName =
+                new ObjectName("org.benjamin:type=Bmetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void decoded(final Bstats stats) {
+        decoded.incrementAndGet();
+        add(stats);
+    }
+
+    @Override
+    public void failed(final Bfailure failure, final Exception error, final Bstats stats) {
+        failures.incrementAndGet(failure.ordinal());
+        add(stats);
+    }
+
+    @Override
+    public void encoded(final long bytes, final long nanos) {
+        encoded.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+        encodeNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public long getDecoded() {
+        return decoded.get();
+    }
+
+    @Override
+    public long getFailed() {
+        long count = 0;
+        for (int i = 0; i < failures.length(); i++) {
+            count += failures.get(i);
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Long> getFailures() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for (final Bfailure failure : Bfailure.values()) {
+            counts.put(failure.name(), failures.get(failure.ordinal()));
+        }
+        return counts;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public long getIntegers() {
+        return integers.get();
+    }
+
+    @Override
+    public long getByteStrings() {
+        return byteStrings.get();
+    }
+
+    @Override
+    public long getLists() {
+        return lists.get();
+    }
+
+    @Override
+    public long getDictionaries() {
+        return dictionaries.get();
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    @Override
+    public int getMaxStringLength() {
+        return maxStringLength.get();
+    }
+
+    @Override
+    public long getDecodeNanos() {
+        return decodeNanos.get();
+    }
+
+    @Override
+    public long getEncoded() {
+        return encoded.get();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public long getEncodeNanos() {
+        return encodeNanos.get();
+    }
+
+    @Override
+    public void reset() {
+        decoded.set(0);
+        for (int i = 0; i < failures.length(); i++) {
+            failures.set(i, 0);
+        }
+        bytesRead.set(0);
+        integers.set(0);
+        byteStrings.set(0);
+        lists.set(0);
+        dictionaries.set(0);
+        maxDepth.set(0);
+        maxStringLength.set(0);
+        decodeNanos.set(0);
+        encoded.set(0);
+        bytesWritten.set(0);
+        encodeNanos.set(0);
+    }
+
+    private void add(final Bstats stats) {
+        bytesRead.addAndGet(stats.bytes());
+        integers.addAndGet(stats.integers());
+        byteStrings.addAndGet(stats.byteStrings());
+        lists.addAndGet(stats.lists());
+        dictionaries.addAndGet(stats.dictionaries());
+        max(maxDepth, stats.maxDepth());
+        max(maxStringLength, stats.maxStringLength());
+        decodeNanos.addAndGet(stats.nanos());
+    }
+
+    private static void max(final AtomicInteger maximum, final int value) {
+        int current = maximum.get();
+        while (value > current && !maximum.compareAndSet(current, value)) {
+            // another thread has changed the maximum meanwhile
+            current = maximum.get();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.benjamin;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link Bmetrics}.
+ */
+public interface BmetricsMXBean {
+
+    /**
+     * Returns number of top-level values decoded.
+     *
+     * @return number of values
+     */
+    long getDecoded();
+
+    /**
+     * Returns number of top-level values failed to be decoded.
+     *
+     * @return number of failures
+     */
+    long getFailed();
+
+    /**
+     * Returns number of failures per {@link Bfailure} category.
+     *
+     * @return number of failures by category name
+     */
+    Map<String, Long> getFailures();
+
+    /**
+     * Returns number of bytes consumed by decoders, including the failed values.
+     *
+     * @return number of bytes
+     */
+    long getBytesRead();
+
+    /**
+     * Returns number of integers read.
+     *
+     * @return number of integers
+     */
+    long getIntegers();
+
+    /**
+     * Returns number of byte strings read, including dictionary keys.
+     *
+     * @return number of byte strings
+     */
+    long getByteStrings();
+
+    /**
+     * Returns number of lists read.
+     *
+     * @return number of lists
+     */
+    long getLists();
+
+    /**
+     * Returns number of dictionaries read.
+     *
+     * @return number of dictionaries
+     */
+    long getDictionaries();
+
+    /**
+     * Returns the deepest nesting of lists and dictionaries read.
+     *
+     * @return nesting depth
+     */
+    int getMaxDepth();
+
+    /**
+     * Returns length of the longest byte string read.
+     *
+     * @return number of bytes
+     */
+    int getMaxStringLength();
+
+    /**
+     * Returns total time spent decoding, including the failed values.
+     *
+     * @return time in nanoseconds
+     */
+    long getDecodeNanos();
+
+    /**
+     * Returns number of top-level values encoded.
+     *
+     * @return number of values
+     */
+    long getEncoded();
+
+    /**
+     * Returns number of bytes written by encoders.
+     *
+     * @return number of bytes
+     */
+    long getBytesWritten();
+
+    /**
+     * Returns total time spent encoding.
+     *
+     * @return time in nanoseconds
+     */
+    long getEncodeNanos();
+
+    /**
+     * Clears all the counters.
+     */
+    void reset();
+}
@@ -0,0 +1,457 @@
+package org.benjamin;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Node of a decoded Bencode data tree.
+ *
+ * Compact alternative to the collections returned by {@link Bdecoder#decodeDict(String...)}.
+ * Integers are kept unboxed, byte strings reference a buffer shared with other nodes instead
+ * of being decoded to {@code String}s, lists and dictionaries keep their items in arrays.
+ * Trees are decoded with {@link Bdecoder#decodeNode()} and encoded with
+ * {@link Bencoder#encode(Bnode)}. Nodes are immutable.
+ *
+ * Each node supports only the accessors of its kind, the others throw
+ * {@code IllegalStateException}.
+ */
+public abstract class Bnode {
+
+    /**
+     * Multiplier of the hash codes combined.
+     */
+    private static final int HASH_MULTIPLIER = 31;
+
+    /**
+     * Only the nested classes extend the node.
+     */
+    Bnode() {
+    }
+
+    /**
+     * Returns value of an integer node.
+     *
+     * @return integer value
+     */
+    public long intValue() {
+        throw unsupported("integer");
+    }
+
+    /**
+     * Returns content of a byte string node as a read-only view of the shared buffer.
+     *
+     * @return byte string value
+     */
+    public ByteBuffer byteBufferValue() {
+        throw unsupported("byte string");
+    }
+
+    /**
+     * Returns copy of a byte string node content.
+     *
+     * @return byte string value
+     */
+    public byte[] bytesValue() {
+        throw unsupported("byte string");
+    }
+
+    /**
+     * Returns content of a byte string node decoded to {@code String}.
+     *
+     * @param charset charset to decode the content with
+     * @return string value
+     */
+    public String stringValue(final Charset charset) {
+        throw unsupported("byte string");
+    }
+
+    /**
+     * Returns number of elements of a list node or entries of a dictionary node.
+     *
+     * @return size of the list or dictionary
+     */
+    public int size() {
+        throw unsupported("list or dictionary");
+    }
+
+    /**
+     * Returns element of a list node.
+     *
+     * @param index index of the element
+     * @return the element
+     */
+    public Bnode get(final int index) {
+        throw unsupported("list");
+    }
+
+    /**
+     * Returns value of a dictionary node property.
+     *
+     * @param key name of the property
+     * @return value of the property or {@code null} if there is no such property
+     */
+    public Bnode get(final String key) {
+        throw unsupported("dictionary");
+    }
+
+    /**
+     * Returns value of a dictionary node property named by raw bytes.
+     *
+     * Unlike {@link #get(String)} the key isn't encoded on every lookup.
+     *
+     * @param key raw name of the property
+     * @return value of the property or {@code null} if there is no such property
+     */
+    public Bnode get(final byte[] key) {
+        throw unsupported("dictionary");
+    }
+
+    /**
+     * Returns key of a dictionary node entry, the entries are ordered by raw keys.
+     *
+     * @param index index of the entry
+     * @return key of the entry
+     */
+    public Bnode key(final int index) {
+        throw unsupported("dictionary");
+    }
+
+    /**
+     * Returns value of a dictionary node entry.
+     *
+     * @param index index of the entry
+     * @return value of the entry
+     */
+    public Bnode value(final int index) {
+        throw unsupported("dictionary");
+    }
+
+    private IllegalStateException unsupported(final String kind) {
+        return new IllegalStateException("Node is not " + kind + ": " + getClass().getSimpleName());
+    }
+
+    /**
+     * Integer node.
+     */
+    public static final class IntNode extends Bnode {
+
+        /**
+         * Value of the integer.
+         */
+        private final long value;
+
+        /**
+         * Creates node of {@code value}.
+         *
+         * @param value value of the integer
+         */
+        IntNode(final long value) {
+            super();
+            this.value = value;
+        }
+
+        @Override
+        public long intValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof IntNode && value == ((IntNode) other).value;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (value ^ value >>> Integer.SIZE);
+        }
+
+        @Override
+        public String toString() {
+            return Long.toString(value);
+        }
+    }
+
+    /**
+     * Byte string node.
+     */
+    public static final class BytesNode extends Bnode {
+
+        /**
+         * Buffer the content is located in, shared with other nodes.
+         */
+        private final byte[] array;
+
+        /**
+         * Index of the first byte of the content within {@link #array}.
+         */
+        private final int offset;
+
+        /**
+         * Length of the content.
+         */
+        private final int length;
+
+        /**
+         * Creates node of {@code length} bytes of {@code array} starting from {@code offset}.
+         *
+         * @param array  buffer the content is located in
+         * @param offset index of the first byte of the content
+         * @param length length of the content
+         */
+        BytesNode(final byte[] array, final int offset, final int length) {
+            super();
+            this.array = array;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public ByteBuffer byteBufferValue() {
+            return ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer();
+        }
+
+        @Override
+        public byte[] bytesValue() {
+            return Arrays.copyOfRange(array, offset, offset + length);
+        }
+
+        @Override
+        public String stringValue(final Charset charset) {
+            return new String(array, offset, length, charset);
+        }
+
+        /**
+         * Compares the content with {@code bytes} lexicographically treating bytes as unsigned.
+         *
+         * @param bytes bytes to compare with
+         * @return a negative number, zero or a positive number if the content is less than,
+         *         equal to or greater than {@code bytes}
+         */
+        int compareTo(final byte[] bytes) {
+            return compareTo(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Compares the content with {@code bytesLength} bytes of {@code bytes} starting from
+         * {@code bytesOffset}.
+         *
+         * @param bytes       array of the bytes to compare with
+         * @param bytesOffset index of the first byte to compare with
+         * @param bytesLength number of the bytes to compare with
+         * @return a negative number, zero or a positive number if the content is less than,
+         *         equal to or greater than the bytes
+         */
+        int compareTo(final byte[] bytes, final int bytesOffset, final int bytesLength) {
+            return KeyOrder.compare(array, offset, length, bytes, bytesOffset, bytesLength);
+        }
+
+        /**
+         * Compares the content with content of {@code other} node.
+         *
+         * @param other node to compare with
+         * @return a negative number, zero or a positive number if the content is less than,
+         *         equal to or greater than content of {@code other}
+         */
+        int compareTo(final BytesNode other) {
+            return KeyOrder.compare(array, offset, length, other.array, other.offset,
+                    other.length);
+        }
+
+        /**
+         * Returns buffer the content is located in.
+         *
+         * @return shared buffer
+         */
+        byte[] array() {
+            return array;
+        }
+
+        /**
+         * Returns index of the first byte of the content within {@link #array()}.
+         *
+         * @return offset of the content
+         */
+        int offset() {
+            return offset;
+        }
+
+        /**
+         * Returns length of the content.
+         *
+         * @return number of bytes
+         */
+        int length() {
+            return length;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof BytesNode && compareTo((BytesNode) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(array, offset, length);
+        }
+
+        /**
+         * Computes hash code of byte string content consistent with {@link #hashCode()}.
+         *
+         * @param array  array of the content
+         * @param offset index of the first byte of the content
+         * @param length length of the content
+         * @return hash code
+         */
+        static int hash(final byte[] array, final int offset, final int length) {
+            int hash = 1;
+            for (int i = offset; i < offset + length; i++) {
+                hash = HASH_MULTIPLIER * hash + array[i];
+            }
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return length + ":" + new String(array, offset, length, UTF_8);
+        }
+    }
+
+    /**
+     * List node.
+     */
+    public static final class ListNode extends Bnode {
+
+        /**
+         * Elements of the list.
+         */
+        private final Bnode[] elements;
+
+        /**
+         * Creates node of {@code elements}.
+         *
+         * @param elements elements of the list, not copied
+         */
+        ListNode(final Bnode... elements) {
+            super();
+            this.elements = elements;
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public Bnode get(final int index) {
+            return elements[index];
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof ListNode
+                    && Arrays.equals(elements, ((ListNode) other).elements);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(elements);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(elements);
+        }
+    }
+
+    /**
+     * Dictionary node.
+     */
+    public static final class DictNode extends Bnode {
+
+        /**
+         * Used to encode keys passed to {@link #get(String)}.
+         */
+        private final Charset charset;
+
+        /**
+         * Keys of the entries ordered by raw bytes, each followed by its value.
+         */
+        private final Bnode[] entries;
+
+        /**
+         * Creates node of the {@code entries}.
+         *
+         * @param charset charset used to encode the keys to look up
+         * @param entries {@code BytesNode} keys ordered by raw bytes, each followed by its value,
+         *                not copied
+         */
+        DictNode(final Charset charset, final Bnode... entries) {
+            super();
+            this.charset = charset;
+            this.entries = entries;
+        }
+
+        @Override
+        public int size() {
+            return entries.length / 2;
+        }
+
+        @Override
+        public Bnode get(final String key) {
+            return get(key.getBytes(charset));
+        }
+
+        @Override
+        public Bnode get(final byte[] key) {
+            int low = 0;
+            int high = size() - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int comparison = ((BytesNode) entries[2 * middle]).compareTo(key);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return entries[2 * middle + 1];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Bnode key(final int index) {
+            return entries[2 * index];
+        }
+
+        @Override
+        public Bnode value(final int index) {
+            return entries[2 * index + 1];
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof DictNode && Arrays.equals(entries, ((DictNode) other).entries);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(entries);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder("{");
+            for (int i = 0; i < entries.length; i += 2) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(entries[i]).append('=').append(entries[i + 1]);
+            }
+            return builder.append('}').toString();
+        }
+    }
+}
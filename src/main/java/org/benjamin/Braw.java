@@ -0,0 +1,62 @@
+package org.benjamin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Value kept in its encoded form.
+ *
+ * A decoder switched to {@link Bdecoder#raw(String...)} returns values of the selected
+ * properties as instances of this class instead of decoding them. {@link Bencoder} writes the
+ * bytes verbatim in a single bulk write, so untouched parts of a decoded structure are neither
+ * decoded nor encoded again and keep their exact bytes. The bytes are not validated, raw values
+ * made of other data should be valid Bencode.
+ */
+public final class Braw {
+
+    /**
+     * Encoded value.
+     */
+    private final ByteBuffer encoded;
+
+    /**
+     * Creates raw value of the remaining bytes of {@code encoded}.
+     *
+     * @param encoded encoded value, the buffer is not copied
+     */
+    public Braw(final ByteBuffer encoded) {
+        this.encoded = encoded.slice();
+    }
+
+    /**
+     * Returns the encoded value, e.g. to decode it later.
+     *
+     * @return read-only view of the bytes
+     */
+    public ByteBuffer bytes() {
+        return encoded.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the encoded value without making a read-only view, for bulk writing.
+     *
+     * @return the bytes, not to be modified
+     */
+    ByteBuffer content() {
+        return encoded.duplicate();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof Braw && encoded.equals(((Braw) other).encoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return encoded.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Braw[" + encoded.remaining() + " bytes]";
+    }
+}
@@ -0,0 +1,347 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Streaming pull reader of Bencode data.
+ *
+ * Instead of building collections, the reader goes through the data token by token. The caller
+ * advances it with {@link #next()} and inspects the current value with the typed accessors,
+ * subtrees of no interest could be passed over with {@link #skipValue()}:
+ *
+ * <pre>
+ * while (reader.next() == Breader.Token.KEY) {
+ *     if ("announce".equals(reader.stringValue())) {
+ *         reader.next();
+ *         announce = reader.stringValue();
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }
+ * </pre>
+ */
+public class Breader {
+
+    /**
+     * Kind of the Bencode data element the reader is positioned at.
+     */
+    public enum Token {
+        /**
+         * Beginning of a dictionary.
+         */
+        START_DICT,
+        /**
+         * Dictionary key.
+         */
+        KEY,
+        /**
+         * Integer.
+         */
+        INT,
+        /**
+         * Byte string.
+         */
+        BYTES,
+        /**
+         * Beginning of a list.
+         */
+        START_LIST,
+        /**
+         * End of a dictionary or a list.
+         */
+        END
+    }
+
+    /**
+     * Initial capacity of the nesting stack.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * Container state of a list.
+     */
+    private static final byte LIST = 0;
+
+    /**
+     * Container state of a dictionary expecting a key.
+     */
+    private static final byte DICT_KEY = 1;
+
+    /**
+     * Container state of a dictionary expecting a value.
+     */
+    private static final byte DICT_VALUE = 2;
+
+    /**
+     * Used to decode {@code String}s.
+     */
+    private final Charset charset;
+
+    /**
+     * A buffered source to read data from.
+     */
+    private final ByteInput input;
+
+    /**
+     * Whether byte strings are read from a stream to arrays of their own.
+     */
+    private final boolean streaming;
+
+    /**
+     * States of the containers enclosing the current token, innermost last.
+     */
+    private byte[] containers = new byte[INITIAL_DEPTH];
+
+    /**
+     * Number of the containers enclosing the current token.
+     */
+    private int depth;
+
+    /**
+     * The current token, {@code null} before the first and after the last one.
+     */
+    private Token token;
+
+    /**
+     * Value of the current integer.
+     */
+    private long integer;
+
+    /**
+     * Length of the current byte string.
+     */
+    private int length;
+
+    /**
+     * Content of the current byte string, {@code null} until it's requested.
+     */
+    private ByteBuffer content;
+
+    /**
+     * Creates reader using {@code bencodedString} of specified {@code charset} as source of data.
+     *
+     * @param charset        charset of the {@code bencodedString}
+     * @param bencodedString a {@code String} to use as source of Bencode data
+     * @see Bdecoder#Bdecoder(Charset, String)
+     */
+    public Breader(final Charset charset, final String bencodedString) {
+        this(charset, new ByteInput(bencodedString.getBytes(charset)), false);
+    }
+
+    /**
+     * Creates reader reading from {@code inputStream} using {@code charset} to decode
+     * character data.
+     *
+     * @param charset     charset used to decode {@code String}s
+     * @param inputStream stream to read data from
+     * @see Bdecoder#Bdecoder(Charset, InputStream)
+     */
+    public Breader(final Charset charset, final InputStream inputStream) {
+        this(charset, new ByteInput(inputStream), true);
+    }
+
+    /**
+     * Creates reader reading remaining bytes of {@code byteBuffer} using {@code charset} to
+     * decode character data.
+     *
+     * @param charset    charset used to decode {@code String}s
+     * @param byteBuffer buffer to read data from
+     * @see Bdecoder#Bdecoder(Charset, ByteBuffer)
+     */
+    public Breader(final Charset charset, final ByteBuffer byteBuffer) {
+        this(charset, new ByteInput(byteBuffer), false);
+    }
+
+    private Breader(final Charset charset, final ByteInput input, final boolean streaming) {
+        this.charset = charset;
+        this.input = input;
+        this.streaming = streaming;
+    }
+
+    /**
+     * Advances to the next token.
+     *
+     * Content of a byte string which wasn't requested is skipped without being read.
+     *
+     * @return the next token or {@code null} if the end of stream is reached after a complete
+     *         top-level value
+     * @throws IOException if an I/O error occurs
+     */
+    public Token next() throws IOException {
+        skipContent();
+        final int chr = input.peek();
+        if (depth == 0) {
+            token = chr == -1 ? null : readValue(chr);
+        } else if (chr == -1) {
+            throw ByteInput.streamEnded();
+        } else if (chr == 'e' && containers[depth - 1] != DICT_VALUE) {
+            input.read();
+            depth--;
+            token = Token.END;
+        } else if (containers[depth - 1] == DICT_KEY) {
+            containers[depth - 1] = DICT_VALUE;
+            length = input.readLength();
+            token = Token.KEY;
+        } else {
+            if (containers[depth - 1] == DICT_VALUE) {
+                containers[depth - 1] = DICT_KEY;
+            }
+            token = readValue(chr);
+        }
+        return token;
+    }
+
+    /**
+     * Returns the current token.
+     *
+     * @return the current token or {@code null} if there is none
+     */
+    public Token token() {
+        return token;
+    }
+
+    /**
+     * Returns the number of containers enclosing the current token.
+     *
+     * {@code START_DICT} and {@code START_LIST} tokens are counted as enclosed by the containers
+     * they start, {@code END} tokens aren't.
+     *
+     * @return nesting depth of the current token
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Skips the value started by the current token.
+     *
+     * For {@code START_DICT} and {@code START_LIST} tokens the reader is advanced to the matching
+     * {@code END} token, for {@code KEY} token the value of the key is skipped. Nothing is
+     * decoded while skipping. Has no effect for other tokens.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void skipValue() throws IOException {
+        if (token == Token.KEY) {
+            next();
+        }
+        if (token == Token.START_DICT || token == Token.START_LIST) {
+            final int level = depth - 1;
+            while (depth > level) {
+                next();
+            }
+        }
+    }
+
+    /**
+     * Returns value of the current {@code INT} token.
+     *
+     * @return integer value
+     */
+    public long intValue() {
+        ensureToken(Token.INT, Token.INT);
+        return integer;
+    }
+
+    /**
+     * Returns value of the current {@code BYTES} or {@code KEY} token as a {@code String}.
+     *
+     * @return string value decoded using the reader charset
+     * @throws IOException if an I/O error occurs
+     */
+    public String stringValue() throws IOException {
+        final ByteBuffer bytes = byteBufferValue();
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + bytes.position(),
+                    bytes.remaining(), charset);
+        }
+        return charset.decode(bytes.duplicate()).toString();
+    }
+
+    /**
+     * Returns value of the current {@code BYTES} or {@code KEY} token as a {@code byte} array.
+     *
+     * @return byte string value
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] bytesValue() throws IOException {
+        final ByteBuffer bytes = byteBufferValue();
+        if (streaming) {
+            // the buffer wraps an array read exclusively for this value
+            return bytes.array();
+        }
+        final byte[] copy = new byte[bytes.remaining()];
+        bytes.duplicate().get(copy);
+        return copy;
+    }
+
+    /**
+     * Returns value of the current {@code BYTES} or {@code KEY} token as a {@code ByteBuffer}.
+     *
+     * If the reader reads a {@code ByteBuffer} the result is a view of it sharing the same
+     * content, no bytes are copied.
+     *
+     * @return byte string value
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteBuffer byteBufferValue() throws IOException {
+        ensureToken(Token.BYTES, Token.KEY);
+        if (content == null) {
+            content = input.slice(length);
+            if (content == null) {
+                throw ByteInput.streamEnded();
+            }
+        }
+        return content;
+    }
+
+    private Token readValue(final int chr) throws IOException {
+        switch (chr) {
+            case 'i':
+                input.read();
+                integer = input.readInteger();
+                return Token.INT;
+            case 'l':
+                input.read();
+                push(LIST);
+                return Token.START_LIST;
+            case 'd':
+                input.read();
+                push(DICT_KEY);
+                return Token.START_DICT;
+            default:
+                if (chr < '0' || chr > '9') {
+                    throw new IllegalStateException(
+                            "Unexpected character occurred instead of value: " + (char) chr);
+                }
+                length = input.readLength();
+                return Token.BYTES;
+        }
+    }
+
+    private void push(final byte container) {
+        if (depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth * 2);
+        }
+        containers[depth++] = container;
+    }
+
+    private void skipContent() throws IOException {
+        if ((token == Token.BYTES || token == Token.KEY) && content == null
+                && !input.skip(length)) {
+            throw ByteInput.streamEnded();
+        }
+        content = null;
+    }
+
+    private void ensureToken(final Token expected, final Token alternative) {
+        if (token != expected && token != alternative) {
+            throw new IllegalStateException("Current token is " + token + " instead of "
+                    + expected);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.benjamin;
+
+/**
+ * Statistics of a single value decoded by {@link Bdecoder}, passed to {@link Blistener}.
+ *
+ * Values are counted as they are read from the source, including the ones skipped without
+ * being decoded, e.g. by {@link Bdecoder#decodeDict(java.util.Collection, String...)}.
+ * Dictionary keys count as byte strings. The instance is reused by the decoder, so it is only
+ * valid during the listener call.
+ */
+public final class Bstats {
+
+    /**
+     * Number of bytes consumed from the source.
+     */
+    private long bytes;
+
+    /**
+     * Time spent decoding, in nanoseconds.
+     */
+    private long nanos;
+
+    /**
+     * Number of integers read.
+     */
+    private long integers;
+
+    /**
+     * Number of byte strings read.
+     */
+    private long byteStrings;
+
+    /**
+     * Number of lists read.
+     */
+    private long lists;
+
+    /**
+     * Number of dictionaries read.
+     */
+    private long dictionaries;
+
+    /**
+     * The deepest nesting of lists and dictionaries.
+     */
+    private int maxDepth;
+
+    /**
+     * Length of the longest byte string.
+     */
+    private int maxStringLength;
+
+    /**
+     * Returns number of bytes consumed from the source.
+     *
+     * @return number of bytes
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns time spent decoding.
+     *
+     * @return elapsed time in nanoseconds
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns number of integers read.
+     *
+     * @return number of integers
+     */
+    public long integers() {
+        return integers;
+    }
+
+    /**
+     * Returns number of byte strings read.
+     *
+     * @return number of byte strings
+     */
+    public long byteStrings() {
+        return byteStrings;
+    }
+
+    /**
+     * Returns number of lists read.
+     *
+     * @return number of lists
+     */
+    public long lists() {
+        return lists;
+    }
+
+    /**
+     * Returns number of dictionaries read.
+     *
+     * @return number of dictionaries
+     */
+    public long dictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * Returns the deepest nesting of lists and dictionaries, a top-level list has depth of one.
+     *
+     * @return nesting depth
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns length of the longest byte string.
+     *
+     * @return number of bytes
+     */
+    public int maxStringLength() {
+        return maxStringLength;
+    }
+
+    /**
+     * Clears the statistics before the next value.
+     */
+    void reset() {
+        bytes = 0;
+        nanos = 0;
+        integers = 0;
+        byteStrings = 0;
+        lists = 0;
+        dictionaries = 0;
+        maxDepth = 0;
+        maxStringLength = 0;
+    }
+
+    /**
+     * Counts an integer.
+     */
+    void integer() {
+        integers++;
+    }
+
+    /**
+     * Counts a byte string.
+     *
+     * @param length length of the byte string
+     */
+    void byteString(final int length) {
+        byteStrings++;
+        maxStringLength = Math.max(maxStringLength, length);
+    }
+
+    /**
+     * Counts a list or a dictionary.
+     *
+     * @param dictionary whether the container is a dictionary
+     * @param depth      nesting depth of the container
+     */
+    void container(final boolean dictionary, final int depth) {
+        if (dictionary) {
+            dictionaries++;
+        } else {
+            lists++;
+        }
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * Sets totals of the value once it's decoded.
+     *
+     * @param consumed number of bytes consumed
+     * @param elapsed  time spent in nanoseconds
+     */
+    void finish(final long consumed, final long elapsed) {
+        bytes = consumed;
+        nanos = elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "Bstats[" + bytes + " bytes in " + nanos + " ns, integers=" + integers
+                + ", byteStrings=" + byteStrings + ", lists=" + lists
+                + ", dictionaries=" + dictionaries + ", maxDepth=" + maxDepth
+                + ", maxStringLength=" + maxStringLength + "]";
+    }
+}
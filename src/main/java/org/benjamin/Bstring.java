@@ -0,0 +1,90 @@
+package org.benjamin;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Byte string decoded to characters on demand.
+ *
+ * String values are decoded as instances of this class by a decoder switched to
+ * {@link Bdecoder#charSequences()}, so the values which are never read cost neither the charset
+ * decoding nor a {@code String}. The characters are decoded on the first call of
+ * a {@code CharSequence} method and kept afterwards. Byte strings are equal if their bytes and
+ * charsets are, so they could be compared and hashed without decoding. {@link Bencoder} encodes
+ * the bytes as they are.
+ */
+public final class Bstring implements CharSequence {
+
+    /**
+     * Encoded characters.
+     */
+    private final ByteBuffer bytes;
+
+    /**
+     * Charset of the {@link #bytes}.
+     */
+    private final Charset charset;
+
+    /**
+     * Decoded characters, {@code null} until decoded.
+     */
+    private String decoded;
+
+    /**
+     * Creates byte string of {@code bytes} decoded using {@code charset}.
+     *
+     * @param bytes   encoded characters, the buffer is not copied
+     * @param charset charset of the bytes
+     */
+    Bstring(final ByteBuffer bytes, final Charset charset) {
+        this.bytes = bytes;
+        this.charset = charset;
+    }
+
+    /**
+     * Returns the encoded characters.
+     *
+     * @return read-only view of the bytes
+     */
+    public ByteBuffer bytes() {
+        return bytes.asReadOnlyBuffer();
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof Bstring && bytes.equals(((Bstring) other).bytes)
+                && charset.equals(((Bstring) other).charset);
+    }
+
+    @Override
+    public int hashCode() {
+        return bytes.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        // decoding twice in concurrent threads is harmless, String is immutable
+        if (decoded == null) {
+            decoded = bytes.hasArray()
+                    ? new String(bytes.array(), bytes.arrayOffset() + bytes.position(),
+                            bytes.remaining(), charset)
+                    : charset.decode(bytes.duplicate()).toString();
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,260 @@
+package org.benjamin;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Single-pass validator of Bencode data.
+ *
+ * Checks that the data is a well-formed value without decoding it, so malformed or hostile
+ * input is rejected before anything is allocated for it. The rules are stricter than the ones
+ * {@link Bdecoder} enforces, only canonical encoding is valid:
+ * <ul>
+ * <li>integers have no leading zeros, no negative zero and fit in {@code long};</li>
+ * <li>byte string lengths have no leading zeros and don't exceed the data;</li>
+ * <li>dictionary keys are byte strings in ascending raw byte order, so they are unique;</li>
+ * <li>lists and dictionaries are terminated.</li>
+ * </ul>
+ * Nesting is tracked iteratively, so deeply nested input can't exhaust the thread stack. The
+ * validator keeps its state between calls and allocates nothing once it has seen the deepest
+ * nesting, a single instance should be used by one thread at a time:
+ *
+ * <pre>
+ * int length = validator.validate(buffer);
+ * handle(buffer.duplicate().limit(buffer.position() + length));
+ * buffer.position(buffer.position() + length);
+ * </pre>
+ */
+public class Bvalidator {
+
+    /**
+     * Initial capacity of the nesting stack.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * Base of the Bencode numbers.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Mask to convert signed {@code byte} to its unsigned value.
+     */
+    private static final int UNSIGNED = 0xff;
+
+    /**
+     * Container state of a list.
+     */
+    private static final byte LIST = 0;
+
+    /**
+     * Container state of a dictionary expecting a key.
+     */
+    private static final byte DICT_KEY = 1;
+
+    /**
+     * Container state of a dictionary expecting a value.
+     */
+    private static final byte DICT_VALUE = 2;
+
+    /**
+     * States of the containers enclosing the current value, innermost last.
+     */
+    private byte[] containers = new byte[INITIAL_DEPTH];
+
+    /**
+     * Indices of the last keys of the dictionaries enclosing the current value, -1 for none.
+     */
+    private int[] keyStarts = new int[INITIAL_DEPTH];
+
+    /**
+     * Lengths of the last keys of the dictionaries enclosing the current value.
+     */
+    private int[] keyLengths = new int[INITIAL_DEPTH];
+
+    /**
+     * Index of the content of the byte string validated last.
+     */
+    private int contentStart;
+
+    /**
+     * Validates the value starting at the position of {@code bytes}.
+     *
+     * Bytes following the value are not examined, so the returned length could be used to
+     * frame concatenated messages. Position of the {@code bytes} is not changed.
+     *
+     * @param bytes data to validate
+     * @return number of bytes the value is encoded in
+     * @throws IllegalStateException if the data doesn't start with a valid value, the message
+     *                               tells the offending index
+     */
+    public int validate(final ByteBuffer bytes) {
+        final int limit = bytes.limit();
+        int index = bytes.position();
+        int depth = 0;
+        do {
+            if (index == limit) {
+                throw invalid("End of data was reached prematurely", index);
+            }
+            final byte chr = bytes.get(index);
+            final byte container = depth == 0 ? LIST : containers[depth - 1];
+            if (chr == 'e' && depth > 0) {
+                if (container == DICT_VALUE) {
+                    throw invalid("Dictionary value was expected", index);
+                }
+                index++;
+                depth--;
+            } else if (container == DICT_KEY) {
+                final int keyIndex = index;
+                index = skipString(bytes, index, limit);
+                checkKeyOrder(bytes, depth - 1, keyIndex, index - contentStart);
+                containers[depth - 1] = DICT_VALUE;
+            } else {
+                if (container == DICT_VALUE) {
+                    containers[depth - 1] = DICT_KEY;
+                }
+                if (chr == 'i') {
+                    index = skipInteger(bytes, index + 1, limit);
+                } else if (chr == 'l' || chr == 'd') {
+                    push(depth++, chr == 'l' ? LIST : DICT_KEY);
+                    index++;
+                } else {
+                    index = skipString(bytes, index, limit);
+                }
+            }
+        } while (depth > 0);
+        return index - bytes.position();
+    }
+
+    /**
+     * Checks that integer content starting at {@code start} is canonical and fits in
+     * {@code long}.
+     *
+     * @param bytes data being validated
+     * @param start index following the leading 'i'
+     * @param limit index one past the last byte of the data
+     * @return index following the terminating 'e'
+     */
+    private static int skipInteger(final ByteBuffer bytes, final int start, final int limit) {
+        int index = start;
+        final boolean negative = index < limit && bytes.get(index) == '-';
+        if (negative) {
+            index++;
+        }
+        if (index < limit && bytes.get(index) == '0') {
+            if (negative) {
+                throw invalid("Negative zero is not valid number", index);
+            }
+            if (index + 1 < limit && bytes.get(index + 1) != 'e') {
+                throw invalid("Zero padded integers aren't allowed", index);
+            }
+        }
+        final int end = skipDigits(bytes, index, limit, 'e',
+                negative ? Long.MIN_VALUE : -Long.MAX_VALUE);
+        return end + 1;
+    }
+
+    /**
+     * Checks that the length prefix of a byte string starting at {@code start} is canonical and
+     * the content doesn't exceed the data.
+     *
+     * @param bytes data being validated
+     * @param start index of the first digit of the length
+     * @param limit index one past the last byte of the data
+     * @return index following the content
+     */
+    private int skipString(final ByteBuffer bytes, final int start, final int limit) {
+        if (start < limit && bytes.get(start) == '0' && start + 1 < limit
+                && bytes.get(start + 1) != ':') {
+            throw invalid("Zero padded lengths aren't allowed", start);
+        }
+        final int separator = skipDigits(bytes, start, limit, ':', -Integer.MAX_VALUE);
+        final int length = parseLength(bytes, start, separator);
+        contentStart = separator + 1;
+        if (length > limit - contentStart) {
+            throw invalid("Byte string exceeds the data", start);
+        }
+        return contentStart + length;
+    }
+
+    /**
+     * Checks that the digits starting at {@code start} make a number which, negated, is not less
+     * than {@code least}. The number is accumulated negatively to cover {@code Long.MIN_VALUE}.
+     *
+     * @param bytes     data being validated
+     * @param start     index of the first digit
+     * @param limit     index one past the last byte of the data
+     * @param delimiter character terminating the number
+     * @param least     the least (negative) value the number is allowed to take
+     * @return index of the delimiter
+     */
+    private static int skipDigits(final ByteBuffer bytes, final int start, final int limit,
+            final char delimiter, final long least) {
+        final long bound = least / RADIX;
+        long accumulated = 0;
+        int index = start;
+        while (index < limit && bytes.get(index) != delimiter) {
+            final int digit = bytes.get(index) - '0';
+            if (digit < 0 || digit >= RADIX) {
+                throw invalid("Unexpected character in number", index);
+            }
+            if (accumulated < bound || accumulated * RADIX < least + digit) {
+                throw invalid("Number is out of range", start);
+            }
+            accumulated = accumulated * RADIX - digit;
+            index++;
+        }
+        if (index == limit) {
+            throw invalid("End of data was reached prematurely", index);
+        }
+        if (index == start) {
+            throw invalid("Number has no digits", index);
+        }
+        return index;
+    }
+
+    private static int parseLength(final ByteBuffer bytes, final int start, final int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            length = length * RADIX + bytes.get(i) - '0';
+        }
+        return length;
+    }
+
+    private void checkKeyOrder(final ByteBuffer bytes, final int level, final int keyIndex,
+            final int length) {
+        if (keyStarts[level] >= 0
+                && compare(bytes, keyStarts[level], keyLengths[level], contentStart, length) >= 0) {
+            throw invalid("Dictionary keys are not unique and sorted", keyIndex);
+        }
+        keyStarts[level] = contentStart;
+        keyLengths[level] = length;
+    }
+
+    private static int compare(final ByteBuffer bytes, final int first, final int firstLength,
+            final int second, final int secondLength) {
+        final int length = Math.min(firstLength, secondLength);
+        for (int i = 0; i < length; i++) {
+            final int difference = (bytes.get(first + i) & UNSIGNED)
+                    - (bytes.get(second + i) & UNSIGNED);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return firstLength - secondLength;
+    }
+
+    private void push(final int depth, final byte container) {
+        if (depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth * 2);
+            keyStarts = Arrays.copyOf(keyStarts, depth * 2);
+            keyLengths = Arrays.copyOf(keyLengths, depth * 2);
+        }
+        containers[depth] = container;
+        keyStarts[depth] = -1;
+    }
+
+    private static IllegalStateException invalid(final String message, final int index) {
+        return new IllegalStateException(message + " at index " + index);
+    }
+}
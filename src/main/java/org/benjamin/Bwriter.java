@@ -0,0 +1,328 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Streaming push writer of Bencode data.
+ *
+ * Counterpart of {@link Breader}: instead of building collections for {@link Bencoder}, the
+ * caller emits the data token by token and the writer encodes it straight to the output, so
+ * documents of any size are written in constant memory:
+ *
+ * <pre>
+ * writer.beginDict().key("files").beginDict();
+ * for (Torrent torrent : torrents) {
+ *     writer.key(torrent.infoHash()).beginDict()
+ *         .key("complete").value(torrent.seeders())
+ *         .key("incomplete").value(torrent.leechers())
+ *         .end();
+ * }
+ * writer.end().end();
+ * </pre>
+ *
+ * Nesting of the tokens is always validated. Keys of the dictionaries must be emitted in raw
+ * byte order, this is validated only if {@link #checked()} is enabled. Each top-level value is
+ * flushed to the output once it's complete.
+ */
+public class Bwriter {
+
+    /**
+     * Initial capacity of the nesting stack.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * Container state of a list.
+     */
+    private static final byte LIST = 0;
+
+    /**
+     * Container state of a dictionary expecting a key.
+     */
+    private static final byte DICT_KEY = 1;
+
+    /**
+     * Container state of a dictionary expecting a value.
+     */
+    private static final byte DICT_VALUE = 2;
+
+    /**
+     * Used to encode {@code String}s.
+     */
+    private final Charset charset;
+
+    /**
+     * Encoder writing the data.
+     */
+    private final Bencoder bencoder;
+
+    /**
+     * States of the containers being written, innermost last.
+     */
+    private byte[] containers = new byte[INITIAL_DEPTH];
+
+    /**
+     * Number of the containers being written.
+     */
+    private int depth;
+
+    /**
+     * The last keys of the dictionaries being written indexed by depth, {@code null} unless
+     * the key order is checked.
+     */
+    private byte[][] keys;
+
+    /**
+     * Creates writer encoding data to {@code outputStream} encoding {@code String}s in
+     * {@code charset}.
+     *
+     * @param charset      charset used to encode characters
+     * @param outputStream stream to encode data to
+     * @see Bencoder#Bencoder(Charset, OutputStream)
+     */
+    public Bwriter(final Charset charset, final OutputStream outputStream) {
+        this(charset, new Bencoder(charset, outputStream));
+    }
+
+    /**
+     * Creates writer encoding data to {@code channel} encoding {@code String}s in
+     * {@code charset}.
+     *
+     * @param charset charset used to encode characters
+     * @param channel channel to encode data to
+     * @see Bencoder#Bencoder(Charset, WritableByteChannel)
+     */
+    public Bwriter(final Charset charset, final WritableByteChannel channel) {
+        this(charset, new Bencoder(charset, channel));
+    }
+
+    private Bwriter(final Charset charset, final Bencoder bencoder) {
+        this.charset = charset;
+        this.bencoder = bencoder;
+    }
+
+    /**
+     * Enables validation of the dictionary key order, so the writer fails instead of producing
+     * a dictionary with unordered or duplicate keys.
+     *
+     * The last key of every dictionary being written is retained to compare the next one with.
+     *
+     * @return this Bwriter instance
+     */
+    public Bwriter checked() {
+        if (keys == null) {
+            keys = new byte[containers.length][];
+        }
+        return this;
+    }
+
+    /**
+     * Makes the writer to report each complete top-level value to {@code listener}.
+     *
+     * @param listener listener to report to or {@code null} to report nothing
+     * @return this Bwriter instance
+     * @see Bencoder#listener(Blistener)
+     */
+    public Bwriter listener(final Blistener listener) {
+        bencoder.listener(listener);
+        return this;
+    }
+
+    /**
+     * Starts a dictionary, its entries are emitted as keys each followed by a value.
+     *
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     */
+    public Bwriter beginDict() throws IOException {
+        startValue();
+        bencoder.begin('d');
+        push(DICT_KEY);
+        return this;
+    }
+
+    /**
+     * Starts a list.
+     *
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     */
+    public Bwriter beginList() throws IOException {
+        startValue();
+        bencoder.begin('l');
+        push(LIST);
+        return this;
+    }
+
+    /**
+     * Ends the innermost dictionary or list.
+     *
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if there is no container to end or a key lacks its value
+     */
+    public Bwriter end() throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("No dictionary or list to end");
+        }
+        if (containers[depth - 1] == DICT_VALUE) {
+            throw new IllegalStateException("Dictionary value was expected");
+        }
+        depth--;
+        if (keys != null) {
+            keys[depth] = null;
+        }
+        bencoder.end();
+        return this;
+    }
+
+    /**
+     * Emits key of the next dictionary entry.
+     *
+     * @param key the key, encoded using the writer charset
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if a key is not expected or is out of order in checked mode
+     */
+    public Bwriter key(final String key) throws IOException {
+        startKey(keys == null ? null : bencoder.encodeKey(key));
+        bencoder.writeKey(key);
+        return this;
+    }
+
+    /**
+     * Emits raw key of the next dictionary entry.
+     *
+     * @param key the key
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if a key is not expected or is out of order in checked mode
+     */
+    public Bwriter key(final byte[] key) throws IOException {
+        startKey(keys == null ? null : key.clone());
+        bencoder.encode(key);
+        return this;
+    }
+
+    /**
+     * Emits integer value.
+     *
+     * @param integer the value
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if a dictionary key is expected
+     */
+    public Bwriter value(final long integer) throws IOException {
+        startValue();
+        bencoder.encode(integer);
+        return this;
+    }
+
+    /**
+     * Emits byte string value encoded using the writer charset.
+     *
+     * @param string the value
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if a dictionary key is expected
+     */
+    public Bwriter value(final String string) throws IOException {
+        startValue();
+        bencoder.encode(string);
+        return this;
+    }
+
+    /**
+     * Emits byte string value.
+     *
+     * @param bytes the value
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if a dictionary key is expected
+     */
+    public Bwriter value(final byte[] bytes) throws IOException {
+        startValue();
+        bencoder.encode(bytes);
+        return this;
+    }
+
+    /**
+     * Emits remaining bytes of {@code byteBuffer} as byte string value.
+     *
+     * @param byteBuffer the value, its position is not changed
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if a dictionary key is expected
+     */
+    public Bwriter value(final ByteBuffer byteBuffer) throws IOException {
+        startValue();
+        bencoder.encode(byteBuffer);
+        return this;
+    }
+
+    /**
+     * Emits value of any type supported by {@link Bencoder#encode(java.util.List)}, e.g. a
+     * small dictionary built as a {@code Map} or a {@link Bnode}.
+     *
+     * @param object the value
+     * @return this Bwriter instance
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if a dictionary key is expected
+     */
+    public Bwriter value(final Object object) throws IOException {
+        startValue();
+        bencoder.encodeValue(object);
+        return this;
+    }
+
+    /**
+     * Returns the number of containers being written.
+     *
+     * @return nesting depth of the next token
+     */
+    public int depth() {
+        return depth;
+    }
+
+    private void startValue() {
+        if (depth == 0) {
+            return;
+        }
+        if (containers[depth - 1] == DICT_KEY) {
+            throw new IllegalStateException("Dictionary key was expected");
+        }
+        if (containers[depth - 1] == DICT_VALUE) {
+            containers[depth - 1] = DICT_KEY;
+        }
+    }
+
+    private void startKey(final byte[] key) {
+        if (depth == 0 || containers[depth - 1] != DICT_KEY) {
+            throw new IllegalStateException("Dictionary key is not expected");
+        }
+        if (keys != null) {
+            if (keys[depth - 1] != null && KeyOrder.compare(keys[depth - 1], key) >= 0) {
+                throw new IllegalStateException("Dictionary keys are not in raw byte order: "
+                        + new String(key, charset) + " follows "
+                        + new String(keys[depth - 1], charset));
+            }
+            keys[depth - 1] = key;
+        }
+        containers[depth - 1] = DICT_VALUE;
+    }
+
+    private void push(final byte container) {
+        if (depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth * 2);
+            if (keys != null) {
+                keys = Arrays.copyOf(keys, depth * 2);
+            }
+        }
+        containers[depth++] = container;
+    }
+}
@@ -0,0 +1,637 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Buffered source of Bencode data.
+ *
+ * Bytes are pulled from the underlying stream in large chunks, so the decoding loops index
+ * a plain array and only go to the stream once the buffer is exhausted. Data coming from a
+ * {@code ByteBuffer} is indexed in place when the buffer is backed by an array or copied in
+ * chunks otherwise, byte strings could be sliced out of such a buffer without copying.
+ */
+final class ByteInput {
+
+    /**
+     * Size of the chunks read from the underlying stream.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Mask to convert signed {@code byte} to its unsigned value.
+     */
+    private static final int UNSIGNED = 0xff;
+
+    /**
+     * Base of the Bencode numbers.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Initial capacity of the nesting stack of skipped values.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * Container state of a list.
+     */
+    private static final byte LIST = 0;
+
+    /**
+     * Container state of a dictionary expecting a key.
+     */
+    private static final byte DICT_KEY = 1;
+
+    /**
+     * Container state of a dictionary expecting a value.
+     */
+    private static final byte DICT_VALUE = 2;
+
+    /**
+     * A stream to refill the buffer from, {@code null} if the data comes from elsewhere.
+     */
+    private InputStream inputStream;
+
+    /**
+     * Source {@code ByteBuffer}, {@code null} if the data comes from elsewhere.
+     *
+     * Position of the buffer points to the first byte not yet transferred to {@link #buffer}.
+     */
+    private ByteBuffer byteBuffer;
+
+    /**
+     * Index of the first byte of the data within {@link #byteBuffer}.
+     */
+    private int start;
+
+    /**
+     * Buffered data.
+     */
+    private byte[] buffer;
+
+    /**
+     * Internal buffer reused across the sources, {@code null} until one is needed.
+     */
+    private byte[] chunk;
+
+    /**
+     * Index of the next byte to read from the buffer.
+     */
+    private int position;
+
+    /**
+     * Index one past the last valid byte of the buffer.
+     */
+    private int limit;
+
+    /**
+     * Offset of the first byte of the buffer from the beginning of the data.
+     */
+    private long offset;
+
+    /**
+     * Digest the consumed bytes are fed to, {@code null} unless capturing.
+     */
+    private MessageDigest capture;
+
+    /**
+     * The first consumed byte not yet fed to {@link #capture}.
+     *
+     * The byte is indexed within {@link #buffer} if the input reads a stream and within
+     * {@link #byteBuffer} otherwise.
+     */
+    private int captured;
+
+    /**
+     * Limits checked while reading, kept across the sources.
+     */
+    private Blimits limits = Blimits.UNLIMITED;
+
+    /**
+     * States of the containers of the value being skipped, {@code null} until one is skipped.
+     */
+    private byte[] skipped;
+
+    /**
+     * Statistics the values read are counted in, {@code null} unless a listener is set.
+     */
+    private Bstats stats;
+
+    /**
+     * Creates input reading from {@code inputStream} through an internal buffer.
+     *
+     * @param inputStream stream to read data from
+     */
+    ByteInput(final InputStream inputStream) {
+        reset(inputStream);
+    }
+
+    /**
+     * Creates input reading directly from {@code bytes}, no copying is done.
+     *
+     * @param bytes data to read
+     */
+    ByteInput(final byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Creates input reading remaining bytes of {@code byteBuffer}.
+     *
+     * Position of the {@code byteBuffer} is not changed.
+     *
+     * @param byteBuffer data to read
+     */
+    ByteInput(final ByteBuffer byteBuffer) {
+        reset(byteBuffer);
+    }
+
+    /**
+     * Switches the input to read from {@code inputStream} discarding any buffered data.
+     *
+     * @param inputStream stream to read data from
+     */
+    void reset(final InputStream inputStream) {
+        this.inputStream = inputStream;
+        this.byteBuffer = null;
+        this.start = 0;
+        this.buffer = chunk();
+        this.position = 0;
+        this.limit = 0;
+        this.offset = 0;
+        this.capture = null;
+    }
+
+    /**
+     * Switches the input to read remaining bytes of {@code byteBuffer} discarding any buffered
+     * data.
+     *
+     * Position of the {@code byteBuffer} is not changed.
+     *
+     * @param byteBuffer data to read
+     */
+    void reset(final ByteBuffer byteBuffer) {
+        this.inputStream = null;
+        this.byteBuffer = byteBuffer.duplicate();
+        this.start = byteBuffer.position();
+        this.capture = null;
+        if (byteBuffer.hasArray()) {
+            this.buffer = byteBuffer.array();
+            this.position = byteBuffer.arrayOffset() + byteBuffer.position();
+            this.limit = byteBuffer.arrayOffset() + byteBuffer.limit();
+            this.offset = -position;
+            this.byteBuffer.position(byteBuffer.limit());
+        } else {
+            this.buffer = chunk();
+            this.position = 0;
+            this.limit = 0;
+            this.offset = 0;
+        }
+    }
+
+    /**
+     * Sets limits to check while reading.
+     *
+     * @param inputLimits limits to check
+     */
+    void limits(final Blimits inputLimits) {
+        this.limits = inputLimits;
+    }
+
+    /**
+     * Returns limits checked while reading.
+     *
+     * @return limits to check
+     */
+    Blimits limits() {
+        return limits;
+    }
+
+    /**
+     * Sets statistics to count the values read in, kept across the sources.
+     *
+     * @param valueStats statistics to update or {@code null} to count nothing
+     */
+    void stats(final Bstats valueStats) {
+        this.stats = valueStats;
+    }
+
+    /**
+     * Checks limits before a list or a dictionary is decoded.
+     *
+     * @param depth      nesting depth of the container
+     * @param dictionary whether the container is a dictionary
+     */
+    void startContainer(final int depth, final boolean dictionary) {
+        limits.checkDepth(depth);
+        limits.checkTotal(offset + position);
+        if (stats != null) {
+            stats.container(dictionary, depth);
+        }
+    }
+
+    /**
+     * Returns the source {@code ByteBuffer} to be indexed using {@link #index()}.
+     *
+     * @return independent view of the whole source buffer or {@code null} if the input reads
+     *         a stream
+     */
+    ByteBuffer source() {
+        if (byteBuffer == null) {
+            return null;
+        }
+        final ByteBuffer source = byteBuffer.duplicate();
+        source.position(0);
+        return source;
+    }
+
+    /**
+     * Returns number of bytes consumed since the input was switched to the current source.
+     *
+     * @return number of bytes consumed
+     */
+    long consumed() {
+        return offset + position;
+    }
+
+    /**
+     * Returns index of the next byte within {@link #source()}.
+     *
+     * @return index of the next byte to read
+     */
+    int index() {
+        return (int) (start + offset + position);
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return the next byte as an unsigned value or -1 if the end of stream is reached
+     * @throws IOException if an I/O error occurs
+     */
+    int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & UNSIGNED;
+    }
+
+    /**
+     * Returns the next byte without consuming it.
+     *
+     * @return the next byte as an unsigned value or -1 if the end of stream is reached
+     * @throws IOException if an I/O error occurs
+     */
+    int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & UNSIGNED;
+    }
+
+    /**
+     * Reads bytes to fill {@code bytes} entirely unless the end of stream is reached.
+     *
+     * @param bytes array to read data to
+     * @return number of bytes actually read
+     * @throws IOException if an I/O error occurs
+     */
+    int read(final byte[] bytes) throws IOException {
+        return read(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads {@code length} bytes to {@code bytes} starting at {@code offset} unless the end of
+     * stream is reached.
+     *
+     * @param bytes  array to read data to
+     * @param offset index within {@code bytes} to put the first byte at
+     * @param length number of bytes to read
+     * @return number of bytes actually read
+     * @throws IOException if an I/O error occurs
+     */
+    int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        int count = Math.min(limit - position, length);
+        System.arraycopy(buffer, position, bytes, offset, count);
+        position += count;
+        // bypass the buffer for the rest of data
+        if (inputStream != null) {
+            flushCapture();
+            int read;
+            while (count < length
+                    && (read = inputStream.read(bytes, offset + count, length - count)) != -1) {
+                if (capture != null) {
+                    capture.update(bytes, offset + count, read);
+                }
+                count += read;
+                this.offset += read;
+            }
+        } else if (count < length) {
+            final int read = Math.min(byteBuffer.remaining(), length - count);
+            byteBuffer.get(bytes, offset + count, read);
+            count += read;
+            this.offset += read;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the array the data is read from in place.
+     *
+     * @return backing array of the source buffer or {@code null} if the data is transferred to
+     *         an internal buffer
+     */
+    byte[] array() {
+        return inputStream == null && byteBuffer.hasArray() ? buffer : null;
+    }
+
+    /**
+     * Returns index of the next byte within {@link #array()}.
+     *
+     * @return index of the next byte to read
+     */
+    int arrayIndex() {
+        return position;
+    }
+
+    /**
+     * Returns the next {@code length} bytes as a buffer consuming them.
+     *
+     * Bytes are not copied if the input reads a {@code ByteBuffer}, a view of it is returned.
+     *
+     * @param length number of bytes to return
+     * @return buffer of the next {@code length} bytes or {@code null} if there is not enough data
+     * @throws IOException if an I/O error occurs
+     */
+    ByteBuffer slice(final int length) throws IOException {
+        if (byteBuffer == null) {
+            final byte[] bytes = new byte[length];
+            return read(bytes) == length ? ByteBuffer.wrap(bytes) : null;
+        }
+        final int index = index();
+        if (!skip(length)) {
+            return null;
+        }
+        final ByteBuffer slice = byteBuffer.duplicate();
+        slice.position(index);
+        slice.limit(index + length);
+        return slice.slice();
+    }
+
+    /**
+     * Skips the next {@code length} bytes.
+     *
+     * @param length number of bytes to skip
+     * @return {@code false} if the end of stream was reached before skipping all the bytes
+     * @throws IOException if an I/O error occurs
+     */
+    boolean skip(final int length) throws IOException {
+        final int buffered = limit - position;
+        if (length <= buffered) {
+            position += length;
+            return true;
+        }
+        position = limit;
+        final int unbuffered = length - buffered;
+        if (inputStream == null) {
+            if (unbuffered > byteBuffer.remaining()) {
+                return false;
+            }
+            byteBuffer.position(byteBuffer.position() + unbuffered);
+        } else if (capture != null) {
+            // the skipped bytes are to be captured, so they are read through the buffer
+            int remaining = unbuffered;
+            while (remaining > 0) {
+                if (!fill()) {
+                    return false;
+                }
+                position = Math.min(remaining, limit);
+                remaining -= position;
+            }
+            return true;
+        } else {
+            long remaining = unbuffered;
+            while (remaining > 0) {
+                long skipped = inputStream.skip(remaining);
+                if (skipped <= 0) {
+                    // skip() is allowed to not make progress, reading tells end of stream apart
+                    if (inputStream.read() == -1) {
+                        return false;
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+        }
+        offset += unbuffered;
+        return true;
+    }
+
+    /**
+     * Starts feeding all the bytes consumed from now on to {@code digest}.
+     *
+     * @param digest digest to update
+     */
+    void startCapture(final MessageDigest digest) {
+        capture = digest;
+        captured = inputStream == null ? index() : position;
+    }
+
+    /**
+     * Stops feeding the consumed bytes to the digest passed to {@link #startCapture}.
+     */
+    void endCapture() {
+        if (inputStream == null) {
+            final ByteBuffer range = source();
+            range.limit(index());
+            range.position(captured);
+            capture.update(range);
+        } else {
+            flushCapture();
+        }
+        capture = null;
+    }
+
+    /**
+     * Reads Bencode integer, the leading 'i' should be already consumed.
+     *
+     * @return decoded integer
+     * @throws IOException if an I/O error occurs
+     */
+    long readInteger() throws IOException {
+        int chr = read();
+        final boolean negative = chr == '-';
+        if (negative) {
+            chr = read();
+        }
+        if (chr == '0' && negative) {
+            throw new DecodingException(Bfailure.NEGATIVE_ZERO,
+                    "Negative zero is not valid number");
+        }
+        if (chr == '0' && peek() != 'e') {
+            throw new DecodingException(Bfailure.ZERO_PADDING,
+                    "Zero padded integers aren't allowed");
+        }
+        final long number = parseDigits(chr, 'e', negative ? Long.MIN_VALUE : -Long.MAX_VALUE);
+        limits.checkTotal(offset + position);
+        if (stats != null) {
+            stats.integer();
+        }
+        return negative ? number : -number;
+    }
+
+    /**
+     * Reads length prefix of Bencode byte string including ':' separator.
+     *
+     * @return length of the byte string
+     * @throws IOException if an I/O error occurs
+     */
+    int readLength() throws IOException {
+        final int length;
+        try {
+            length = (int) -parseDigits(read(), ':', -Integer.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            throw new DecodingException(Bfailure.of(e), "String length specifier was expected", e);
+        }
+        limits.checkString(length, offset + position);
+        if (stats != null) {
+            stats.byteString(length);
+        }
+        return length;
+    }
+
+    /**
+     * Skips the next Bencode value without decoding it.
+     *
+     * Nested containers are tracked on an explicit stack, so deeply nested data can't exhaust
+     * the thread stack.
+     *
+     * @param depth number of the containers enclosing the value
+     * @throws IOException if an I/O error occurs
+     */
+    void skipValue(final int depth) throws IOException {
+        int nesting = 0;
+        do {
+            final int chr = peek();
+            final byte container = nesting == 0 ? LIST : skipped[nesting - 1];
+            if (chr == 'e' && nesting > 0 && container != DICT_VALUE) {
+                read();
+                nesting--;
+            } else if (container == DICT_KEY) {
+                skipString();
+                skipped[nesting - 1] = DICT_VALUE;
+            } else {
+                if (container == DICT_VALUE) {
+                    skipped[nesting - 1] = DICT_KEY;
+                }
+                if (chr == 'i') {
+                    read();
+                    readInteger();
+                } else if (chr == 'l' || chr == 'd') {
+                    read();
+                    startContainer(depth + nesting + 1, chr == 'd');
+                    pushSkipped(nesting++, chr == 'l' ? LIST : DICT_KEY);
+                } else {
+                    skipString();
+                }
+            }
+        } while (nesting > 0);
+    }
+
+    /**
+     * Creates exception to report truncated data.
+     *
+     * @return exception to throw
+     */
+    static IllegalStateException streamEnded() {
+        return new DecodingException(Bfailure.PREMATURE_END,
+                "End of stream was reached prematurely");
+    }
+
+    private void skipString() throws IOException {
+        if (!skip(readLength())) {
+            throw streamEnded();
+        }
+    }
+
+    /**
+     * Parses decimal number starting with {@code chr} up to {@code delimiter}.
+     *
+     * Digits are accumulated negatively straight from the input, the same way
+     * {@link Long#parseLong(String)} does, to be able to represent {@code Long.MIN_VALUE}.
+     *
+     * @param chr       the first digit of the number
+     * @param delimiter character terminating the number
+     * @param limit     the least (negative) value the number is allowed to take
+     * @return negated parsed number
+     * @throws IOException if an I/O error occurs
+     */
+    private long parseDigits(final int chr, final char delimiter, final long limit)
+            throws IOException {
+        final long multiplicationLimit = limit / RADIX;
+        long result = 0;
+        int digit = chr;
+        do {
+            if (digit == -1) {
+                throw streamEnded();
+            }
+            if (digit < '0' || digit > '9') {
+                throw new NumberDecodingException(Bfailure.UNEXPECTED_CHARACTER,
+                        "Unexpected character in number: " + (char) digit);
+            }
+            if (result < multiplicationLimit || result * RADIX < limit + digit - '0') {
+                throw new NumberDecodingException(Bfailure.OUT_OF_RANGE, "Number is out of range");
+            }
+            result = result * RADIX - (digit - '0');
+        } while ((digit = read()) != delimiter);
+        return result;
+    }
+
+    private void pushSkipped(final int nesting, final byte container) {
+        if (skipped == null) {
+            skipped = new byte[INITIAL_DEPTH];
+        } else if (nesting == skipped.length) {
+            skipped = Arrays.copyOf(skipped, nesting * 2);
+        }
+        skipped[nesting] = container;
+    }
+
+    private byte[] chunk() {
+        if (chunk == null) {
+            chunk = new byte[BUFFER_SIZE];
+        }
+        return chunk;
+    }
+
+    private void flushCapture() {
+        if (capture != null) {
+            capture.update(buffer, captured, position - captured);
+            captured = position;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        final int read;
+        if (inputStream != null) {
+            flushCapture();
+            read = inputStream.read(buffer);
+            if (read > 0) {
+                captured = 0;
+            }
+        } else {
+            read = Math.min(byteBuffer.remaining(), buffer.length);
+            byteBuffer.get(buffer, 0, read);
+        }
+        if (read <= 0) {
+            return false;
+        }
+        offset += limit;
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
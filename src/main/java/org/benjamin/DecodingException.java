@@ -0,0 +1,50 @@
+package org.benjamin;
+
+/**
+ * Malformed data or exceeded limit found by a decoder, tagged with its {@link Bfailure}
+ * category where it is thrown.
+ */
+final class DecodingException extends IllegalStateException {
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Category of the failure.
+     */
+    private final Bfailure failure;
+
+    /**
+     * Creates exception of {@code failure} category.
+     *
+     * @param failure category of the failure
+     * @param message detail message
+     */
+    DecodingException(final Bfailure failure, final String message) {
+        super(message);
+        this.failure = failure;
+    }
+
+    /**
+     * Creates exception of {@code failure} category caused by another exception.
+     *
+     * @param failure category of the failure
+     * @param message detail message
+     * @param cause   the exception the failure is found by
+     */
+    DecodingException(final Bfailure failure, final String message, final Throwable cause) {
+        super(message, cause);
+        this.failure = failure;
+    }
+
+    /**
+     * Returns category of the failure.
+     *
+     * @return the category
+     */
+    Bfailure failure() {
+        return failure;
+    }
+}
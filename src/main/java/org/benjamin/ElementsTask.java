@@ -0,0 +1,100 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Task decoding the located elements of a list, splitting itself to be run in parallel.
+ *
+ * Each leaf task decodes a run of adjacent elements with a decoder of its own reading the
+ * source buffer from the first element of the run to the last one.
+ *
+ * @see Bdecoder#parallel(java.util.concurrent.ForkJoinPool)
+ */
+final class ElementsTask extends RecursiveAction {
+
+    /**
+     * Number of elements decoded by a single task, lists of this size aren't split.
+     */
+    static final int ELEMENTS_PER_TASK = 256;
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Decoder the decoders of the tasks are forked from.
+     */
+    private final Bdecoder parent;
+
+    /**
+     * Buffer the elements are located in.
+     */
+    private final ByteBuffer source;
+
+    /**
+     * Indices of the first bytes of the elements followed by index one past the last element.
+     */
+    private final int[] bounds;
+
+    /**
+     * Decoded elements, filled by the tasks concurrently at disjoint indices.
+     */
+    private final Object[] elements;
+
+    /**
+     * Index of the first element to decode.
+     */
+    private final int from;
+
+    /**
+     * Index one past the last element to decode.
+     */
+    private final int to;
+
+    /**
+     * Creates task decoding the elements from {@code from} inclusive to {@code to} exclusive.
+     *
+     * @param parent   decoder to fork the decoders of the tasks from
+     * @param source   buffer the elements are located in
+     * @param bounds   indices of the elements and the end of the last one
+     * @param elements array to put the decoded elements to
+     * @param from     index of the first element to decode
+     * @param to       index one past the last element to decode
+     */
+    ElementsTask(final Bdecoder parent, final ByteBuffer source, final int[] bounds,
+            final Object[] elements, final int from, final int to) {
+        super();
+        this.parent = parent;
+        this.source = source;
+        this.bounds = bounds;
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= ELEMENTS_PER_TASK) {
+            decode();
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        invokeAll(new ElementsTask(parent, source, bounds, elements, from, middle),
+                new ElementsTask(parent, source, bounds, elements, middle, to));
+    }
+
+    private void decode() {
+        final Bdecoder decoder =
+                parent.fork(new LazyDict.Span(bounds[from], bounds[to]).of(source));
+        for (int i = from; i < to; i++) {
+            try {
+                elements[i] = decoder.decodeObject();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to decode element " + i, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package org.benjamin;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Push-style Bencode decoder accepting data in arbitrary chunks.
+ *
+ * Unlike {@link Bdecoder} which pulls data from a blocking stream, the decoder is fed with
+ * whatever bytes are at hand, e.g. just read from a non-blocking channel, and keeps the parse
+ * state between the calls. Neither the whole message nor the partially read tokens are
+ * buffered apart from the content of the current byte string:
+ *
+ * <pre>
+ * while (channel.read(buffer) &gt; 0) {
+ *     buffer.flip();
+ *     while (decoder.feed(buffer)) {
+ *         handle(decoder.value());
+ *     }
+ *     buffer.compact();
+ * }
+ * </pre>
+ *
+ * Values are decoded to the same types {@link Bdecoder} produces. Errors are reported as soon
+ * as invalid byte is fed, after that the decoder should be {@link #reset()}. The buffer of
+ * a byte string grows as its content arrives rather than being allocated for the claimed
+ * length, so a peer can't make the decoder allocate more than it has sent. Data of untrusted
+ * peers should still be decoded with {@link #limits(Blimits)} set.
+ */
+public class IncrementalBdecoder {
+
+    /**
+     * Expecting a value, a dictionary key or an end of container.
+     */
+    private static final int TOKEN = 0;
+
+    /**
+     * Reading digits of an integer.
+     */
+    private static final int INTEGER = 1;
+
+    /**
+     * Reading digits of a byte string length.
+     */
+    private static final int LENGTH = 2;
+
+    /**
+     * Reading content of a byte string.
+     */
+    private static final int CONTENT = 3;
+
+    /**
+     * Base of the Bencode numbers.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Initial capacity of the content buffer of a byte string.
+     */
+    private static final int INITIAL_CONTENT_LENGTH = 8192;
+
+    /**
+     * Used to decode {@code String}s.
+     */
+    private final Charset charset;
+
+    /**
+     * Order of the keys of decoded dictionaries.
+     */
+    private final KeyOrder keyOrder;
+
+    /**
+     * Binary properties of top-level dictionaries.
+     */
+    private final List<String> byteStrings;
+
+    /**
+     * Lists and dictionaries being decoded, innermost last.
+     */
+    private final List<Frame> frames = new ArrayList<>();
+
+    /**
+     * What the decoder expects next.
+     */
+    private int state = TOKEN;
+
+    /**
+     * Whether the current integer is negative.
+     */
+    private boolean negative;
+
+    /**
+     * Number of digits of the current integer or length read so far.
+     */
+    private int digits;
+
+    /**
+     * Negated value of the current integer or length read so far.
+     */
+    private long number;
+
+    /**
+     * Whether the current byte string is a dictionary key.
+     */
+    private boolean key;
+
+    /**
+     * Content of the current byte string.
+     */
+    private byte[] content;
+
+    /**
+     * Length of the current byte string.
+     */
+    private int length;
+
+    /**
+     * Number of bytes of {@link #content} read so far.
+     */
+    private int filled;
+
+    /**
+     * Number of bytes consumed since the decoder was created or reset.
+     */
+    private long consumed;
+
+    /**
+     * Limits checked while decoding, kept across resets.
+     */
+    private Blimits limits = Blimits.UNLIMITED;
+
+    /**
+     * Whether a complete value was decoded and not yet taken.
+     */
+    private boolean complete;
+
+    /**
+     * The complete value.
+     */
+    private Object value;
+
+    /**
+     * Creates decoder using {@code charset} to decode character data.
+     *
+     * @param charset     charset used to decode {@code String}s
+     * @param byteStrings properties of top-level dictionaries to decode as raw bytes,
+     *                    see {@link Bdecoder#decodeDict(String...)}
+     */
+    public IncrementalBdecoder(final Charset charset, final String... byteStrings) {
+        this.charset = charset;
+        this.keyOrder = new KeyOrder(charset);
+        this.byteStrings = Arrays.asList(byteStrings.clone());
+    }
+
+    /**
+     * Makes the decoder to check {@code limits} while decoding.
+     *
+     * Byte string lengths are checked once the length prefix is read, before any content is
+     * buffered, nesting depth when a list or a dictionary starts. Unlike the parse state, limits
+     * are kept when the decoder is reset.
+     *
+     * @param decoderLimits limits to check
+     * @return this IncrementalBdecoder instance
+     * @throws IllegalStateException from {@link #feed(ByteBuffer)} if a limit is exceeded
+     * @see Bdecoder#limits(Blimits)
+     */
+    public IncrementalBdecoder limits(final Blimits decoderLimits) {
+        this.limits = decoderLimits;
+        return this;
+    }
+
+    /**
+     * Consumes remaining bytes of {@code bytes} up to the end of the next complete value.
+     *
+     * Bytes following a complete value are left in the buffer. Nothing is consumed while the
+     * complete value is not taken with {@link #value()}.
+     *
+     * @param bytes data to decode
+     * @return {@code true} if a complete value is available
+     * @throws IllegalStateException if the data is not valid Bencode
+     * @throws NumberFormatException if an integer is malformed
+     */
+    public boolean feed(final ByteBuffer bytes) {
+        while (!complete && bytes.hasRemaining()) {
+            if (state != CONTENT) {
+                consumed++;
+            }
+            switch (state) {
+                case CONTENT:
+                    readContent(bytes);
+                    break;
+                case INTEGER:
+                    readInteger(bytes.get());
+                    break;
+                case LENGTH:
+                    readLength(bytes.get());
+                    break;
+                default:
+                    readToken(bytes.get());
+                    break;
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Takes the complete value.
+     *
+     * @return decoded value
+     * @throws IllegalStateException if no complete value is available
+     */
+    public Object value() {
+        if (!complete) {
+            throw new IllegalStateException("No complete value was decoded");
+        }
+        final Object result = value;
+        complete = false;
+        value = null;
+        return result;
+    }
+
+    /**
+     * Tells whether no value is partially decoded, e.g. to check if a connection was closed
+     * in the middle of a message.
+     *
+     * @return {@code true} if the bytes fed so far contain only complete values
+     */
+    public boolean isIdle() {
+        return state == TOKEN && frames.isEmpty();
+    }
+
+    /**
+     * Discards the parse state and a complete value not yet taken, so the decoder could be used
+     * for another data source.
+     */
+    public void reset() {
+        frames.clear();
+        state = TOKEN;
+        content = null;
+        consumed = 0;
+        complete = false;
+        value = null;
+    }
+
+    private void readToken(final byte chr) {
+        limits.checkTotal(consumed);
+        final Frame frame = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+        if (frame != null && frame.dictionary != null && frame.key == null) {
+            if (chr == 'e') {
+                endContainer();
+            } else if (isDigit(chr)) {
+                startLength(chr, true);
+            } else {
+                throw new IllegalStateException("String length specifier was expected");
+            }
+        } else if (chr == 'e' && frame != null && frame.list != null) {
+            endContainer();
+        } else if (chr == 'i') {
+            state = INTEGER;
+            negative = false;
+            digits = 0;
+            number = 0;
+        } else if (chr == 'l') {
+            limits.checkDepth(frames.size() + 1);
+            frames.add(new Frame(new ArrayList<>(), null, Collections.<String>emptyList()));
+        } else if (chr == 'd') {
+            limits.checkDepth(frames.size() + 1);
+            frames.add(new Frame(null, new TreeMap<String, Object>(keyOrder),
+                    innerByteStrings(frame)));
+        } else if (isDigit(chr)) {
+            startLength(chr, false);
+        } else {
+            throw new IllegalStateException(
+                    "Unexpected character occurred instead of value: " + (char) chr);
+        }
+    }
+
+    private void readInteger(final byte chr) {
+        if (chr == '-' && digits == 0 && !negative) {
+            negative = true;
+        } else if (chr == 'e' && digits > 0) {
+            state = TOKEN;
+            complete(negative ? number : -number);
+        } else {
+            if (chr == '0' && negative && digits == 0) {
+                throw new IllegalStateException("Negative zero is not valid number");
+            }
+            if (digits == 1 && number == 0) {
+                throw new IllegalStateException("Zero padded integers aren't allowed");
+            }
+            number = accumulate(number, chr,
+                    negative ? Long.MIN_VALUE : -Long.MAX_VALUE);
+        }
+    }
+
+    private void startLength(final byte chr, final boolean keyString) {
+        state = LENGTH;
+        key = keyString;
+        digits = 0;
+        number = 0;
+        readLength(chr);
+    }
+
+    private void readLength(final byte chr) {
+        if (chr == ':' && digits > 0) {
+            length = (int) -number;
+            limits.checkString(length, consumed);
+            // the buffer grows as the content arrives, the claimed length is not trusted
+            content = new byte[Math.min(length, INITIAL_CONTENT_LENGTH)];
+            filled = 0;
+            state = CONTENT;
+            if (length == 0) {
+                endContent();
+            }
+            return;
+        }
+        try {
+            number = accumulate(number, chr, -Integer.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("String length specifier was expected", e);
+        }
+    }
+
+    private void readContent(final ByteBuffer bytes) {
+        if (filled == content.length) {
+            content = Arrays.copyOf(content, (int) Math.min(length, 2L * content.length));
+        }
+        final int count = Math.min(bytes.remaining(), content.length - filled);
+        bytes.get(content, filled, count);
+        filled += count;
+        consumed += count;
+        if (filled == length) {
+            endContent();
+        }
+    }
+
+    private void endContent() {
+        state = TOKEN;
+        final byte[] bytes = content;
+        content = null;
+        final Frame frame = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+        if (key) {
+            frame.key = new String(bytes, charset);
+        } else if (frame != null && frame.dictionary != null
+                && frame.byteStrings.contains(frame.key)) {
+            complete(bytes);
+        } else {
+            complete(new String(bytes, charset));
+        }
+    }
+
+    private void endContainer() {
+        final Frame frame = frames.remove(frames.size() - 1);
+        complete(frame.list == null ? frame.dictionary : frame.list);
+    }
+
+    private void complete(final Object decoded) {
+        if (frames.isEmpty()) {
+            value = decoded;
+            complete = true;
+            return;
+        }
+        final Frame frame = frames.get(frames.size() - 1);
+        limits.checkElements(++frame.count);
+        if (frame.list == null) {
+            frame.dictionary.put(frame.key, decoded);
+            frame.key = null;
+        } else {
+            frame.list.add(decoded);
+        }
+    }
+
+    private List<String> innerByteStrings(final Frame parent) {
+        if (parent == null) {
+            return byteStrings;
+        }
+        if (parent.dictionary == null) {
+            return Collections.emptyList();
+        }
+        final List<String> result = new ArrayList<>();
+        for (final String propertyName : parent.byteStrings) {
+            if (propertyName.length() > parent.key.length()
+                    && propertyName.startsWith(parent.key)
+                    && propertyName.charAt(parent.key.length()) == '.') {
+                result.add(propertyName.substring(parent.key.length() + 1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds decimal digit to a number accumulated negatively.
+     *
+     * @param accumulated negated number accumulated so far
+     * @param chr         the next digit
+     * @param limit       the least (negative) value the number is allowed to take
+     * @return negated number including the digit
+     */
+    private long accumulate(final long accumulated, final byte chr, final long limit) {
+        if (!isDigit(chr)) {
+            throw new NumberFormatException("Unexpected character in number: " + (char) chr);
+        }
+        if (accumulated < limit / RADIX || accumulated * RADIX < limit + chr - '0') {
+            throw new NumberFormatException("Number is out of range");
+        }
+        digits++;
+        return accumulated * RADIX - (chr - '0');
+    }
+
+    private static boolean isDigit(final byte chr) {
+        return chr >= '0' && chr <= '9';
+    }
+
+    /**
+     * List or dictionary being decoded.
+     */
+    private static final class Frame {
+
+        /**
+         * The list, {@code null} if the frame is a dictionary.
+         */
+        private final List<Object> list;
+
+        /**
+         * The dictionary, {@code null} if the frame is a list.
+         */
+        private final Map<String, Object> dictionary;
+
+        /**
+         * Binary properties of the dictionary.
+         */
+        private final List<String> byteStrings;
+
+        /**
+         * Key of the dictionary value expected next, {@code null} if a key is expected.
+         */
+        private String key;
+
+        /**
+         * Number of the elements or entries decoded so far.
+         */
+        private int count;
+
+        /**
+         * Creates frame of either {@code list} or {@code dictionary}.
+         *
+         * @param list        the list or {@code null}
+         * @param dictionary  the dictionary or {@code null}
+         * @param byteStrings binary properties of the dictionary
+         */
+        Frame(final List<Object> list, final Map<String, Object> dictionary,
+                final List<String> byteStrings) {
+            this.list = list;
+            this.dictionary = dictionary;
+            this.byteStrings = byteStrings;
+        }
+    }
+}
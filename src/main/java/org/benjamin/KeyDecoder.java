@@ -0,0 +1,136 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Decoder of dictionary keys.
+ *
+ * Keys are read in place when the data is held in a heap buffer and to a reused array
+ * otherwise, so no array is allocated per key. Keys of ASCII-compatible charsets consisting of
+ * ASCII bytes only are decoded as ISO-8859-1, which is a plain copy, instead of running the
+ * charset decoder. Short keys are cached by their bytes, so keys repeating across dictionaries,
+ * e.g. "length" and "path" of torrent file entries, share a single {@code String}.
+ */
+final class KeyDecoder {
+
+    /**
+     * Number of the cached keys, a power of two.
+     */
+    private static final int CACHE_SIZE = 64;
+
+    /**
+     * Keys longer than this are not cached.
+     */
+    private static final int MAX_CACHED_LENGTH = 64;
+
+    /**
+     * Bytes of ASCII characters are less than this.
+     */
+    private static final int ASCII_LIMIT = 0x80;
+
+    /**
+     * Mask to convert signed {@code byte} to its unsigned value.
+     */
+    private static final int UNSIGNED = 0xff;
+
+    /**
+     * Charset the keys are encoded in.
+     */
+    private final Charset charset;
+
+    /**
+     * Whether ASCII bytes decode to the same characters in {@link #charset}.
+     */
+    private final boolean asciiCompatible;
+
+    /**
+     * Whether {@link #charset} is ISO-8859-1, which maps each byte to a character.
+     */
+    private final boolean latin1;
+
+    /**
+     * Recently decoded keys indexed by hash of their bytes.
+     */
+    private final String[] keys = new String[CACHE_SIZE];
+
+    /**
+     * Bytes of {@link #keys} at the same indices.
+     */
+    private final byte[][] keyBytes = new byte[CACHE_SIZE][];
+
+    /**
+     * Array the keys not readable in place are read to.
+     */
+    private final byte[] scratch = new byte[MAX_CACHED_LENGTH];
+
+    /**
+     * Creates decoder of the keys encoded in {@code charset}.
+     *
+     * @param charset charset the keys are encoded in
+     */
+    KeyDecoder(final Charset charset) {
+        this.charset = charset;
+        this.latin1 = ISO_8859_1.equals(charset);
+        this.asciiCompatible = latin1 || UTF_8.equals(charset) || US_ASCII.equals(charset);
+    }
+
+    /**
+     * Decodes the next byte string of {@code input} as a key.
+     *
+     * @param input source to read the key from
+     * @return decoded key
+     * @throws IOException if an I/O error occurs
+     */
+    String decode(final ByteInput input) throws IOException {
+        final int length = input.readLength();
+        byte[] array = input.array();
+        final int offset;
+        if (array == null) {
+            array = length > scratch.length ? new byte[length] : scratch;
+            offset = 0;
+            if (input.read(array, 0, length) != length) {
+                throw ByteInput.streamEnded();
+            }
+        } else {
+            offset = input.arrayIndex();
+            if (!input.skip(length)) {
+                throw ByteInput.streamEnded();
+            }
+        }
+        if (length > MAX_CACHED_LENGTH) {
+            return decode(array, offset, length);
+        }
+        final int slot = Bnode.BytesNode.hash(array, offset, length) & CACHE_SIZE - 1;
+        final byte[] cached = keyBytes[slot];
+        if (cached != null
+                && KeyOrder.compare(cached, 0, cached.length, array, offset, length) == 0) {
+            return keys[slot];
+        }
+        final String key = decode(array, offset, length);
+        keyBytes[slot] = Arrays.copyOfRange(array, offset, offset + length);
+        keys[slot] = key;
+        return key;
+    }
+
+    private String decode(final byte[] array, final int offset, final int length) {
+        if (!asciiCompatible || !latin1 && !isAscii(array, offset, length)) {
+            return new String(array, offset, length, charset);
+        }
+        return new String(array, offset, length, ISO_8859_1);
+    }
+
+    private static boolean isAscii(final byte[] array, final int offset, final int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if ((array[i] & UNSIGNED) >= ASCII_LIMIT) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,140 @@
+package org.benjamin;
+
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Comparator;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Orders dictionary keys by raw bytes of their encoded form as Bencode requires.
+ *
+ * Byte order of UTF-8, US-ASCII and ISO-8859-1 encoded strings is the order of their code
+ * points and byte order of UTF-16BE is the order of {@code char}s, such keys are compared
+ * without encoding them. Keys are encoded to compare them in other charsets.
+ */
+final class KeyOrder implements Comparator<String>, Serializable {
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Mask to convert signed {@code byte} to its unsigned value.
+     */
+    private static final int UNSIGNED = 0xff;
+
+    /**
+     * Charset the keys are encoded in.
+     */
+    private final Charset charset;
+
+    /**
+     * Whether byte order of {@link #charset} is the code point order.
+     */
+    private final boolean codePointOrder;
+
+    /**
+     * Whether byte order of {@link #charset} is the {@code char} order.
+     */
+    private final boolean charOrder;
+
+    /**
+     * Creates ordering of keys encoded in {@code charset}.
+     *
+     * @param charset charset the keys are encoded in
+     */
+    KeyOrder(final Charset charset) {
+        this.charset = charset;
+        this.codePointOrder = UTF_8.equals(charset) || US_ASCII.equals(charset)
+                || ISO_8859_1.equals(charset);
+        this.charOrder = UTF_16BE.equals(charset);
+    }
+
+    @Override
+    public int compare(final String first, final String second) {
+        if (charOrder) {
+            return first.compareTo(second);
+        }
+        if (codePointOrder) {
+            return compareCodePoints(first, second);
+        }
+        return compare(first.getBytes(charset), second.getBytes(charset));
+    }
+
+    /**
+     * Compares byte strings lexicographically treating bytes as unsigned.
+     *
+     * @param first  the first byte string
+     * @param second the second byte string
+     * @return a negative number, zero or a positive number if {@code first} is less than,
+     *         equal to or greater than {@code second}
+     */
+    static int compare(final byte[] first, final byte[] second) {
+        return compare(first, 0, first.length, second, 0, second.length);
+    }
+
+    /**
+     * Compares ranges of byte arrays lexicographically treating bytes as unsigned.
+     *
+     * @param first        array of the first byte string
+     * @param firstOffset  index of the first byte string within {@code first}
+     * @param firstLength  length of the first byte string
+     * @param second       array of the second byte string
+     * @param secondOffset index of the second byte string within {@code second}
+     * @param secondLength length of the second byte string
+     * @return a negative number, zero or a positive number if the first byte string is less
+     *         than, equal to or greater than the second one
+     */
+    static int compare(final byte[] first, final int firstOffset, final int firstLength,
+            final byte[] second, final int secondOffset, final int secondLength) {
+        final int length = Math.min(firstLength, secondLength);
+        for (int i = 0; i < length; i++) {
+            final int difference = (first[firstOffset + i] & UNSIGNED)
+                    - (second[secondOffset + i] & UNSIGNED);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return firstLength - secondLength;
+    }
+
+    /**
+     * Tells whether the order is the order of code points, as of UTF-8 encoded keys.
+     *
+     * @return {@code true} if the keys are ordered by code points
+     */
+    boolean isCodePointOrder() {
+        return codePointOrder;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof KeyOrder && charset.equals(((KeyOrder) other).charset);
+    }
+
+    @Override
+    public int hashCode() {
+        return charset.hashCode();
+    }
+
+    private static int compareCodePoints(final String first, final String second) {
+        final int length = Math.min(first.length(), second.length());
+        for (int i = 0; i < length; i++) {
+            final char firstChar = first.charAt(i);
+            final char secondChar = second.charAt(i);
+            if (firstChar != secondChar) {
+                // surrogates encode code points above any other char
+                if (Character.isSurrogate(firstChar) != Character.isSurrogate(secondChar)) {
+                    return Character.isSurrogate(firstChar) ? 1 : -1;
+                }
+                return firstChar - secondChar;
+            }
+        }
+        return first.length() - second.length();
+    }
+}
@@ -0,0 +1,240 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Dictionary decoding its values on the first access.
+ *
+ * Keeps the location of every value within the source buffer until the value is requested,
+ * then decodes and caches it. Reading is safe from concurrent threads.
+ *
+ * @see Bdecoder#lazy()
+ */
+final class LazyDict extends AbstractMap<String, Object> implements SortedMap<String, Object> {
+
+    /**
+     * Used to decode {@code String}s.
+     */
+    private final Charset charset;
+
+    /**
+     * Buffer the values are located in.
+     */
+    private final ByteBuffer source;
+
+    /**
+     * Whether binary properties are decoded as {@code ByteBuffer} views of {@link #source}.
+     */
+    private final boolean slicing;
+
+    /**
+     * Binary properties of the dictionary, see {@link Bdecoder#decodeDict(String...)}.
+     */
+    private final List<String> byteStrings;
+
+    /**
+     * Decoded values or {@link Span}s of the values yet to decode.
+     */
+    private final SortedMap<String, Object> values;
+
+    /**
+     * Guards decoding of the values, shared with all the views of the dictionary.
+     */
+    private final Object lock;
+
+    /**
+     * Creates dictionary of values located in {@code source}.
+     *
+     * @param charset     charset used to decode {@code String}s
+     * @param source      buffer the values are located in
+     * @param slicing     whether binary properties are decoded as {@code ByteBuffer} views
+     * @param byteStrings binary properties of the dictionary
+     * @param values      {@link Span}s of the values
+     */
+    LazyDict(final Charset charset, final ByteBuffer source, final boolean slicing,
+            final List<String> byteStrings, final SortedMap<String, Object> values) {
+        this(charset, source, slicing, byteStrings, values, new Object());
+    }
+
+    private LazyDict(final Charset charset, final ByteBuffer source, final boolean slicing,
+            final List<String> byteStrings, final SortedMap<String, Object> values,
+            final Object lock) {
+        this.charset = charset;
+        this.source = source;
+        this.slicing = slicing;
+        this.byteStrings = byteStrings;
+        this.values = values;
+        this.lock = lock;
+    }
+
+    @Override
+    public Object get(final Object key) {
+        synchronized (lock) {
+            final Object value = values.get(key);
+            if (!(value instanceof Span)) {
+                return value;
+            }
+            final Object decoded = decode((String) key, (Span) value);
+            values.put((String) key, decoded);
+            return decoded;
+        }
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+        synchronized (lock) {
+            final Object previous = get(key);
+            values.put(key, value);
+            return previous;
+        }
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        synchronized (lock) {
+            final Object previous = get(key);
+            values.remove(key);
+            return previous;
+        }
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                final Iterator<Entry<String, Object>> entries = values.entrySet().iterator();
+                return new Iterator<Entry<String, Object>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        final Entry<String, Object> entry = entries.next();
+                        synchronized (lock) {
+                            if (entry.getValue() instanceof Span) {
+                                entry.setValue(decode(entry.getKey(), (Span) entry.getValue()));
+                            }
+                        }
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.size();
+            }
+        };
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+        return values.comparator();
+    }
+
+    @Override
+    public SortedMap<String, Object> subMap(final String fromKey, final String toKey) {
+        return view(values.subMap(fromKey, toKey));
+    }
+
+    @Override
+    public SortedMap<String, Object> headMap(final String toKey) {
+        return view(values.headMap(toKey));
+    }
+
+    @Override
+    public SortedMap<String, Object> tailMap(final String fromKey) {
+        return view(values.tailMap(fromKey));
+    }
+
+    @Override
+    public String firstKey() {
+        return values.firstKey();
+    }
+
+    @Override
+    public String lastKey() {
+        return values.lastKey();
+    }
+
+    private SortedMap<String, Object> view(final SortedMap<String, Object> range) {
+        return new LazyDict(charset, source, slicing, byteStrings, range, lock);
+    }
+
+    private Object decode(final String key, final Span span) {
+        try {
+            return new Bdecoder(charset, span.of(source), slicing).lazy()
+                    .decodeValue(key, byteStrings);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to decode value of " + key, e);
+        }
+    }
+
+    /**
+     * Location of an encoded value.
+     */
+    static final class Span {
+
+        /**
+         * Index of the first byte of the value.
+         */
+        private final int start;
+
+        /**
+         * Index one past the last byte of the value.
+         */
+        private final int end;
+
+        /**
+         * Creates span of the bytes from {@code start} inclusive to {@code end} exclusive.
+         *
+         * @param start index of the first byte
+         * @param end   index one past the last byte
+         */
+        Span(final int start, final int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the spanned bytes of {@code source}.
+         *
+         * @param source buffer to take the bytes from
+         * @return view of the spanned bytes
+         */
+        ByteBuffer of(final ByteBuffer source) {
+            final ByteBuffer bytes = source.duplicate();
+            bytes.position(start);
+            bytes.limit(end);
+            return bytes.slice();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Fixed-size list decoding its elements on the first access.
+ *
+ * Keeps the location of every element within the source buffer until the element is requested,
+ * then decodes and caches it. Reading is safe from concurrent threads.
+ *
+ * @see Bdecoder#lazy()
+ */
+final class LazyList extends AbstractList<Object> implements RandomAccess {
+
+    /**
+     * Used to decode {@code String}s.
+     */
+    private final Charset charset;
+
+    /**
+     * Buffer the elements are located in.
+     */
+    private final ByteBuffer source;
+
+    /**
+     * Whether binary dictionary properties are decoded as {@code ByteBuffer} views of
+     * {@link #source}.
+     */
+    private final boolean slicing;
+
+    /**
+     * Indices of the first bytes of the elements followed by index one past the last element.
+     */
+    private final int[] bounds;
+
+    /**
+     * Decoded elements, {@code null} for the ones yet to decode.
+     */
+    private final Object[] elements;
+
+    /**
+     * Creates list of elements located in {@code source}.
+     *
+     * @param charset charset used to decode {@code String}s
+     * @param source  buffer the elements are located in
+     * @param slicing whether binary dictionary properties are decoded as {@code ByteBuffer}
+     *                views
+     * @param bounds  indices of the elements and the end of the last one
+     */
+    LazyList(final Charset charset, final ByteBuffer source, final boolean slicing,
+            final int[] bounds) {
+        this.charset = charset;
+        this.source = source;
+        this.slicing = slicing;
+        this.bounds = bounds;
+        this.elements = new Object[bounds.length - 1];
+    }
+
+    @Override
+    public Object get(final int index) {
+        synchronized (elements) {
+            if (elements[index] == null) {
+                elements[index] = decode(index);
+            }
+            return elements[index];
+        }
+    }
+
+    @Override
+    public Object set(final int index, final Object element) {
+        synchronized (elements) {
+            final Object previous = get(index);
+            elements[index] = element;
+            return previous;
+        }
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    private Object decode(final int index) {
+        try {
+            return new Bdecoder(charset, new LazyDict.Span(bounds[index], bounds[index + 1])
+                    .of(source), slicing).lazy().decodeObject();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to decode element " + index, e);
+        }
+    }
+}
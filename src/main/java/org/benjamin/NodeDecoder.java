@@ -0,0 +1,325 @@
+package org.benjamin;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Decoder of {@link Bnode} trees.
+ *
+ * Byte strings of data held in a heap buffer are referenced in place. Otherwise they are copied
+ * to chunks of memory shared by many nodes, so a node doesn't need an array of its own. Nodes of
+ * dictionary keys are reused for equal keys, which tend to repeat across dictionaries. Items of
+ * lists and dictionaries are collected on a stack reused across the containers, then each
+ * container gets an array of the exact size. The containers being decoded are tracked on
+ * a stack as well rather than by recursion, so deeply nested data can't overflow the thread
+ * stack.
+ */
+final class NodeDecoder {
+
+    /**
+     * Size of the chunks byte strings are copied to.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Byte strings longer than this get arrays of their own instead of a chunk space.
+     */
+    private static final int MAX_CHUNKED_LENGTH = 512;
+
+    /**
+     * Initial capacity of the item stack.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Initial capacity of the container stack.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * Number of dictionary keys to reuse the nodes of, a power of two.
+     */
+    private static final int KEY_CACHE_SIZE = 64;
+
+    /**
+     * Keys longer than this are not reused.
+     */
+    private static final int MAX_CACHED_KEY_LENGTH = 64;
+
+    /**
+     * Used to encode keys looked up in dictionaries.
+     */
+    private final Charset charset;
+
+    /**
+     * A buffered source to decode data from.
+     */
+    private final ByteInput input;
+
+    /**
+     * Items of the containers being decoded, innermost container's last.
+     */
+    private Bnode[] stack = new Bnode[INITIAL_CAPACITY];
+
+    /**
+     * Number of items on the stack.
+     */
+    private int size;
+
+    /**
+     * Indices of the first items of the containers being decoded on the item stack, innermost
+     * last.
+     */
+    private int[] bases = new int[INITIAL_DEPTH];
+
+    /**
+     * Whether the containers being decoded are dictionaries, innermost last.
+     */
+    private boolean[] dictionaries = new boolean[INITIAL_DEPTH];
+
+    /**
+     * Number of the containers being decoded.
+     */
+    private int depth;
+
+    /**
+     * Recently decoded dictionary keys indexed by hash, the equal keys share a node.
+     */
+    private final Bnode.BytesNode[] keys = new Bnode.BytesNode[KEY_CACHE_SIZE];
+
+    /**
+     * Chunk byte strings are copied to, {@code null} until one is needed.
+     *
+     * The chunk is kept between trees, the nodes decoded previously only refer to the part of
+     * the chunk which is already used.
+     */
+    private byte[] chunk;
+
+    /**
+     * Index of the first free byte of {@link #chunk}.
+     */
+    private int used;
+
+    /**
+     * Creates decoder of the trees read from {@code input}.
+     *
+     * @param charset charset used to encode keys looked up in dictionaries
+     * @param input   source to read data from
+     */
+    NodeDecoder(final Charset charset, final ByteInput input) {
+        this.charset = charset;
+        this.input = input;
+    }
+
+    /**
+     * Decodes the next value.
+     *
+     * @return tree of the value
+     * @throws IOException if an I/O error occurs
+     */
+    Bnode decode() throws IOException {
+        try {
+            return decodeNode();
+        } finally {
+            // the stacks are left populated if decoding fails
+            pop(0);
+            depth = 0;
+        }
+    }
+
+    private Bnode decodeNode() throws IOException {
+        while (true) {
+            int chr = input.peek();
+            Bnode node = null;
+            if (depth > 0 && chr == 'e') {
+                input.read();
+                node = endContainer();
+            } else if (depth > 0 && dictionaries[depth - 1]) {
+                // the key is followed by its value within the same iteration
+                if (chr == -1) {
+                    throw ByteInput.streamEnded();
+                }
+                input.limits().checkElements((size - bases[depth - 1]) / 2 + 1);
+                push(decodeKey());
+                chr = input.peek();
+            } else if (depth > 0) {
+                input.limits().checkElements(size - bases[depth - 1] + 1);
+            }
+            if (node == null) {
+                if (chr == 'l' || chr == 'd') {
+                    input.read();
+                    startContainer(chr == 'd');
+                    continue;
+                }
+                node = decodeValue(chr);
+            }
+            if (depth == 0) {
+                return node;
+            }
+            push(node);
+        }
+    }
+
+    private Bnode decodeValue(final int chr) throws IOException {
+        if (chr == 'i') {
+            input.read();
+            return new Bnode.IntNode(input.readInteger());
+        }
+        if (chr == -1) {
+            throw ByteInput.streamEnded();
+        }
+        return decodeBytes();
+    }
+
+    private void startContainer(final boolean dictionary) {
+        input.startContainer(depth + 1, dictionary);
+        if (depth == bases.length) {
+            bases = Arrays.copyOf(bases, depth * 2);
+            dictionaries = Arrays.copyOf(dictionaries, depth * 2);
+        }
+        bases[depth] = size;
+        dictionaries[depth] = dictionary;
+        depth++;
+    }
+
+    private Bnode endContainer() {
+        depth--;
+        final int base = bases[depth];
+        final Bnode[] items = Arrays.copyOfRange(stack, base, size);
+        pop(base);
+        if (!dictionaries[depth]) {
+            return new Bnode.ListNode(items);
+        }
+        return new Bnode.DictNode(charset, sort(items));
+    }
+
+    /**
+     * Decodes dictionary key reusing the node of an equal key decoded before, if any.
+     *
+     * @return key node
+     * @throws IOException if an I/O error occurs
+     */
+    private Bnode.BytesNode decodeKey() throws IOException {
+        final int length = input.readLength();
+        if (length > MAX_CACHED_KEY_LENGTH) {
+            return decodeBytes(length);
+        }
+        byte[] array = input.array();
+        final int offset;
+        if (array == null) {
+            reserve(length);
+            array = chunk;
+            offset = used;
+            if (input.read(chunk, used, length) != length) {
+                throw ByteInput.streamEnded();
+            }
+        } else {
+            offset = input.arrayIndex();
+            if (!input.skip(length)) {
+                throw ByteInput.streamEnded();
+            }
+        }
+        final int slot = Bnode.BytesNode.hash(array, offset, length) & keys.length - 1;
+        if (keys[slot] == null || keys[slot].compareTo(array, offset, length) != 0) {
+            // cached keys get arrays of their own to not retain the source
+            keys[slot] = new Bnode.BytesNode(
+                    Arrays.copyOfRange(array, offset, offset + length), 0, length);
+        }
+        return keys[slot];
+    }
+
+    private Bnode.BytesNode decodeBytes() throws IOException {
+        return decodeBytes(input.readLength());
+    }
+
+    private Bnode.BytesNode decodeBytes(final int length) throws IOException {
+        final byte[] array = input.array();
+        if (array != null) {
+            final int offset = input.arrayIndex();
+            if (!input.skip(length)) {
+                throw ByteInput.streamEnded();
+            }
+            return new Bnode.BytesNode(array, offset, length);
+        }
+        final byte[] target;
+        final int offset;
+        if (length > MAX_CHUNKED_LENGTH) {
+            target = new byte[length];
+            offset = 0;
+        } else {
+            reserve(length);
+            target = chunk;
+            offset = used;
+            used += length;
+        }
+        if (input.read(target, offset, length) != length) {
+            throw ByteInput.streamEnded();
+        }
+        return new Bnode.BytesNode(target, offset, length);
+    }
+
+    private void reserve(final int length) {
+        if (chunk == null || length > chunk.length - used) {
+            chunk = new byte[CHUNK_SIZE];
+            used = 0;
+        }
+    }
+
+    private void push(final Bnode node) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size++] = node;
+    }
+
+    private void pop(final int base) {
+        // the references are cleared to not retain the decoded trees
+        Arrays.fill(stack, base, size, null);
+        size = base;
+    }
+
+    /**
+     * Orders entries by the keys, the keys of valid Bencode dictionaries are sorted already.
+     *
+     * Of the entries with equal keys the last one is kept, as {@link Bdecoder#decodeDict()}
+     * does.
+     *
+     * @param entries keys of the entries each followed by its value
+     * @return the entries ordered by the keys, {@code entries} itself if they are in order
+     */
+    private static Bnode[] sort(final Bnode[] entries) {
+        int sorted = 2;
+        while (sorted < entries.length && ((Bnode.BytesNode) entries[sorted - 2])
+                .compareTo((Bnode.BytesNode) entries[sorted]) < 0) {
+            sorted += 2;
+        }
+        if (sorted >= entries.length) {
+            return entries;
+        }
+        final Integer[] order = new Integer[entries.length / 2];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = 2 * i;
+        }
+        final Bnode[] unsorted = entries.clone();
+        // the sort is stable, so equal keys stay in the order they are decoded in
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer first, final Integer second) {
+                return ((Bnode.BytesNode) unsorted[first])
+                        .compareTo((Bnode.BytesNode) unsorted[second]);
+            }
+        });
+        int length = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i + 1 < order.length && ((Bnode.BytesNode) unsorted[order[i]])
+                    .compareTo((Bnode.BytesNode) unsorted[order[i + 1]]) == 0) {
+                continue;
+            }
+            entries[length++] = unsorted[order[i]];
+            entries[length++] = unsorted[order[i] + 1];
+        }
+        return length == entries.length ? entries : Arrays.copyOf(entries, length);
+    }
+}
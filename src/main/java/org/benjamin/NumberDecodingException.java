@@ -0,0 +1,41 @@
+package org.benjamin;
+
+/**
+ * Malformed number found by a decoder, tagged with its {@link Bfailure} category where it is
+ * thrown.
+ *
+ * Unlike {@link DecodingException} this is a {@code NumberFormatException}, as thrown for the
+ * malformed integers by the decoders.
+ */
+final class NumberDecodingException extends NumberFormatException {
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Category of the failure.
+     */
+    private final Bfailure failure;
+
+    /**
+     * Creates exception of {@code failure} category.
+     *
+     * @param failure category of the failure
+     * @param message detail message
+     */
+    NumberDecodingException(final Bfailure failure, final String message) {
+        super(message);
+        this.failure = failure;
+    }
+
+    /**
+     * Returns category of the failure.
+     *
+     * @return the category
+     */
+    Bfailure failure() {
+        return failure;
+    }
+}
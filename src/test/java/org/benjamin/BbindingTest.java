@@ -0,0 +1,194 @@
+package org.benjamin;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+@Test
+public class BbindingTest {
+
+    @Test
+    void decodeBound() throws IOException {
+        Entry entry = decode("d1:xi1e4:name4:file4:pathl1:a1:be5:sizesd1:ai1ee6:weighti7ee",
+                Entry.class);
+
+        assertEquals(entry.name, "file");
+        assertEquals(entry.path, asList("a", "b"));
+        assertEquals(entry.sizes, Collections.singletonMap("a", 1L));
+        assertEquals(entry.weight, 7);
+        assertNull(entry.children);
+    }
+
+    @Test
+    void decodeRecursive() throws IOException {
+        Entry entry = decode("d8:childrenld4:name1:aed4:name1:bee4:name4:roote", Entry.class);
+
+        assertEquals(entry.name, "root");
+        assertEquals(entry.children.size(), 2);
+        assertEquals(entry.children.get(1).name, "b");
+    }
+
+    @Test
+    void encodeBound() throws IOException {
+        Entry entry = new Entry();
+        entry.name = "file";
+        entry.weight = 7;
+        entry.path = asList("a", "b");
+        entry.sizes = new TreeMap<>();
+        entry.sizes.put("b", 2L);
+        entry.sizes.put("a", 1L);
+        entry.children = asList(new Entry());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new Bencoder(UTF_8, output).encode(entry, Bbinding.of(Entry.class));
+        // null fields are omitted, keys are sorted
+        assertEquals(output.toString("UTF-8"),
+                "d8:childrenld6:weighti0eee4:name4:file4:pathl1:a1:be"
+                        + "5:sizesd1:ai1e1:bi2ee6:weighti7ee");
+    }
+
+    @Test
+    void encodeBoundInUtf16() throws IOException {
+        Keys keys = new Keys();
+        keys.lower = 1;
+        keys.upper = 2;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new Bencoder(UTF_16BE, output).encode(keys, Bbinding.of(Keys.class));
+        // U+FF61 is less than the supplementary character in UTF-16
+        assertEquals(decode(output.toByteArray(), UTF_16BE).keySet(), asList("😀", "｡"));
+    }
+
+    @Test
+    void encodeAfterFailedProperty() throws IOException {
+        Holder holder = new Holder();
+        holder.value = new Object();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Bencoder encoder = new Bencoder(UTF_8, output);
+        try {
+            encoder.encode(holder, Bbinding.of(Holder.class));
+            fail("Unsupported value was encoded");
+        } catch (IllegalArgumentException e) {
+            encoder.encode(42L);
+        }
+
+        assertEquals(output.toString("UTF-8"), "i42e");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeOutOfRange() throws IOException {
+        decode("d6:weighti2147483648ee", Entry.class);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeMistyped() throws IOException {
+        decode("d4:nameli1eee", Entry.class);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void bindUnsupportedField() {
+        Bbinding.of(Unsupported.class);
+    }
+
+    @DataProvider
+    Object[][] unsupportedClasses() {
+        return new Object[][] {
+            { Flags.class        }, // boolean field
+            { Dated.class        }, // platform class
+            { Kinds.class        }, // enum field
+            { Shorts.class       }, // wrapper of unsupported primitive
+            { Outer.class        }, // nested class without constructor
+            { Date.class         },
+            { Kind.class         }
+        };
+    }
+
+    @Test(dataProvider = "unsupportedClasses", expectedExceptions = IllegalArgumentException.class)
+    void bindUnsupportedClass(Class<?> type) {
+        Bbinding.of(type);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void bindWithoutConstructor() {
+        Bbinding.of(Integer.class);
+    }
+
+    static <T> T decode(String encoded, Class<T> type) throws IOException {
+        return new Bdecoder(UTF_8, new ByteArrayInputStream(encoded.getBytes(UTF_8)))
+            .decode(Bbinding.of(type));
+    }
+
+    static Map<String, Object> decode(byte[] encoded, Charset charset)
+            throws IOException {
+        return new Bdecoder(charset, new ByteArrayInputStream(encoded)).decodeDict();
+    }
+
+    static class Entry {
+        String name;
+        int weight;
+        List<String> path;
+        Map<String, Long> sizes;
+        List<Entry> children;
+    }
+
+    static class Keys {
+        @Bkey("｡")
+        long lower;
+        @Bkey("😀")
+        long upper;
+    }
+
+    static class Flags {
+        boolean flag;
+    }
+
+    static class Dated {
+        Date date;
+    }
+
+    enum Kind { FILE, DIRECTORY }
+
+    static class Kinds {
+        Kind kind;
+    }
+
+    static class Shorts {
+        Short number;
+    }
+
+    static class Inner {
+        long value;
+
+        Inner(long value) {
+            this.value = value;
+        }
+    }
+
+    static class Outer {
+        List<Inner> inners;
+    }
+
+    static class Holder {
+        Object value;
+    }
+
+    static class Unsupported {
+        Set<String> set;
+    }
+}
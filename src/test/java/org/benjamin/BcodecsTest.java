@@ -0,0 +1,61 @@
+package org.benjamin;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+@Test
+public class BcodecsTest {
+
+    Bcodecs codecs = new Bcodecs(UTF_8);
+
+    @Test
+    void reuseDecoder() throws IOException {
+        Bdecoder decoder = codecs.decoder(ByteBuffer.wrap("i4e".getBytes(UTF_8)));
+        assertEquals(decoder.decodeInt(), 4L);
+        assertSame(codecs.decoder(new ByteArrayInputStream("2:Ω".getBytes(UTF_8))), decoder);
+        assertEquals(decoder.decodeString(), "Ω");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void limitDecoders() throws IOException {
+        new Bcodecs(UTF_8, Blimits.UNLIMITED.maxDepth(1))
+            .decoder(ByteBuffer.wrap("llee".getBytes(UTF_8)))
+            .decodeList();
+    }
+
+    @Test
+    void reuseEncoder() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Bencoder encoder = codecs.encoder(output).encode("one");
+        assertSame(codecs.encoder(output).encode(1), encoder);
+        assertEquals(output.toByteArray(), "3:onei1e".getBytes(UTF_8));
+    }
+
+    @Test
+    void separateThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Bencoder otherEncoder = executor.submit(new Callable<Bencoder>() {
+                @Override
+                public Bencoder call() {
+                    return codecs.encoder(new ByteArrayOutputStream());
+                }
+            }).get();
+            assertNotSame(codecs.encoder(new ByteArrayOutputStream()), otherEncoder);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.benjamin;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class BcorpusTest {
+
+    Path directory;
+    List<Path> paths;
+    ExecutorService executor;
+    Results results;
+
+    @BeforeMethod
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("corpus");
+        paths = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String content = i == 13
+                    ? "d4:name"                                                 // truncated
+                    : "d4:name" + Integer.toString(i).length() + ":" + i + "6:pieces2:\0\1e";
+            paths.add(Files.write(directory.resolve(String.format("%03d.torrent", i)),
+                    content.getBytes(UTF_8)));
+        }
+        executor = Executors.newFixedThreadPool(4);
+        results = new Results();
+    }
+
+    @AfterMethod
+    void tearDown() throws IOException {
+        executor.shutdownNow();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void decodeInOrder() throws Exception {
+        new Bcorpus(UTF_8, executor).ordered().maxInFlight(8).byteStrings("pieces")
+            .decode(paths, results);
+
+        assertEquals(results.order.size(), 100);
+        assertEquals(results.order, paths);
+        assertEquals(results.dictionaries.get(paths.get(42)).get("name"), "42");
+        assertEquals(results.dictionaries.get(paths.get(42)).get("pieces"),
+                ByteBuffer.wrap(new byte[]{0, 1}));
+        assertEquals(results.errors.keySet(), Collections.singleton(paths.get(13)));
+        assertTrue(results.errors.get(paths.get(13)) instanceof IllegalStateException);
+    }
+
+    @Test
+    void decodeDirectory() throws Exception {
+        try (DirectoryStream<Path> torrents = Files.newDirectoryStream(directory, "*.torrent")) {
+            new Bcorpus(UTF_8, executor).maxInFlight(1).decode(torrents, results);
+        }
+
+        assertEquals(results.dictionaries.size(), 99);
+        assertEquals(results.dictionaries.get(paths.get(7)).get("pieces"), "\0\1");
+        assertEquals(results.errors.size(), 1);
+    }
+
+    @Test
+    void reportFailures() throws Exception {
+        Path missing = directory.resolve("missing.torrent");
+        new Bcorpus(UTF_8, Blimits.UNLIMITED.maxTotalBytes(10), executor)
+            .decode(Collections.nCopies(3, missing), results);
+        new Bcorpus(UTF_8, Blimits.UNLIMITED.maxTotalBytes(10), executor)
+            .decode(paths.subList(50, 51), results);
+
+        assertEquals(results.order.size(), 4);
+        assertTrue(results.errors.get(missing) instanceof NoSuchFileException);
+        assertTrue(results.errors.get(paths.get(50)) instanceof IllegalStateException,
+                "file exceeding the limit should fail");
+    }
+
+    @Test
+    void reportMalformedNumbers() throws Exception {
+        Path malformed = Files.write(directory.resolve("malformed.torrent"),
+                "d1:ai1xee".getBytes(UTF_8));
+        new Bcorpus(UTF_8, executor).ordered()
+            .decode(asList(paths.get(1), malformed, paths.get(2)), results);
+
+        assertEquals(results.order, asList(paths.get(1), malformed, paths.get(2)));
+        assertTrue(results.errors.get(malformed) instanceof NumberFormatException);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void limitNoFilesInFlight() {
+        new Bcorpus(UTF_8, executor).maxInFlight(0);
+    }
+
+    static class Results implements Bcorpus.Callback {
+        List<Path> order = new ArrayList<>();
+        Map<Path, SortedMap<String, Object>> dictionaries = new HashMap<>();
+        Map<Path, Exception> errors = new HashMap<>();
+
+        @Override
+        public void decoded(Path path, SortedMap<String, Object> dictionary) {
+            order.add(path);
+            dictionaries.put(path, dictionary);
+        }
+
+        @Override
+        public void failed(Path path, Exception error) {
+            order.add(path);
+            errors.put(path, error);
+        }
+    }
+}
@@ -1,13 +1,25 @@
 package org.benjamin;
 
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.testng.annotations.DataProvider;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.asList;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEquals;
 
 @Test
@@ -15,14 +27,27 @@ import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEqua
 public class BdecoderTest {
 
     Bdecoder bdecoder;
+    ForkJoinPool pool;
+
+    @BeforeClass
+    void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    void shutDownPool() {
+        pool.shutdownNow();
+    }
 
     @DataProvider
     Object[][] integers() {
         return new Object[][] {
-            { "i42e"        , 42          },
-            { "i0e"         , 0           },
-            { "i-47e"       , -47         },
-            { "i8589934592e", 8589934592L }, // bytes in 8Gb
+            { "i42e"                  , 42             },
+            { "i0e"                   , 0              },
+            { "i-47e"                 , -47            },
+            { "i8589934592e"          , 8589934592L    }, // bytes in 8Gb
+            { "i9223372036854775807e" , Long.MAX_VALUE },
+            { "i-9223372036854775808e", Long.MIN_VALUE },
         };
     }
 
@@ -49,6 +74,21 @@ public class BdecoderTest {
         new Bdecoder(UTF_8, invalidInteger).decodeInt();
     }
 
+    @DataProvider
+    Object[][] malformedIntegers() {
+        return new Object[][] {
+            { "i9223372036854775808e"  }, // overflow
+            { "i-9223372036854775809e" }, // negative overflow
+            { "i4z2e"                  }, // not a digit
+            { "ie"                     }  // no digits
+        };
+    }
+
+    @Test(dataProvider = "malformedIntegers", expectedExceptions = NumberFormatException.class)
+    void decodeMalformedInteger(String malformedInteger) throws IOException {
+        new Bdecoder(UTF_8, malformedInteger).decodeInt();
+    }
+
     @DataProvider
     Object[][] strings() {
         return new Object[][] {
@@ -68,10 +108,12 @@ public class BdecoderTest {
     @DataProvider
     Object[][] invalidStrings() {
         return new Object[][] {
-            { "6:four" }, // too short string
-            { "4four"  }, // missing separator
-            { ":four"  }, // missing length
-            { ""       }, // empty stream
+            { "6:four"          }, // too short string
+            { "-1:four"         }, // negative length
+            { "2147483648:four" }, // length overflow
+            { "4four"           }, // missing separator
+            { ":four"           }, // missing length
+            { ""                }, // empty stream
         };
     }
 
@@ -126,6 +168,46 @@ public class BdecoderTest {
         assertReflectionEquals(decoded, new Bdecoder(UTF_8, encodedList).decodeList());
     }
 
+    @Test(dataProvider = "lists")
+    void decodeListLazily(String encodedList, List<Object> decoded) throws IOException {
+        assertReflectionEquals(decoded, new Bdecoder(UTF_8, encodedList).lazy().decodeList());
+    }
+
+    @Test(dataProvider = "lists")
+    void decodeListInParallel(String encodedList, List<Object> decoded) throws IOException {
+        assertReflectionEquals(decoded,
+                new Bdecoder(UTF_8, encodedList).parallel(pool).decodeList());
+    }
+
+    @Test
+    void decodeLargeListInParallel() throws IOException {
+        StringBuilder files = new StringBuilder("d5:filesl");
+        for (int i = 0; i < 1000; i++) {
+            files.append("d6:lengthi").append(i).append("e4:pathl2:d").append(i % 7).append("ee");
+        }
+        byte[] encoded = files.append("e4:name4:filee").toString().getBytes(UTF_8);
+
+        SortedMap<String, Object> decoded = new Bdecoder(UTF_8, ByteBuffer.wrap(encoded))
+            .parallel(pool)
+            .decodeDict();
+        assertEquals(decoded, new Bdecoder(UTF_8, ByteBuffer.wrap(encoded)).decodeDict());
+        assertEquals(((List<?>) decoded.get("files")).size(), 1000);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeStreamInParallel() throws IOException {
+        new Bdecoder(UTF_8, new ByteArrayInputStream(new byte[0])).parallel(pool);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeInvalidLargeListInParallel() throws IOException {
+        StringBuilder list = new StringBuilder("l");
+        for (int i = 0; i < 1000; i++) {
+            list.append(i == 700 ? "i-0e" : "i1e");
+        }
+        new Bdecoder(UTF_8, list.append('e').toString()).parallel(pool).decodeList();
+    }
+
     @DataProvider
     Object[][] invalidLists() {
         return new Object[][] {
@@ -206,6 +288,119 @@ public class BdecoderTest {
         );
     }
 
+    @DataProvider
+    Object[][] projections() {
+        return new Object[][] {
+            {
+                asList("num", "dict.str"),
+                "d4:dictd3:bin5:bytes3:str3:Δ!e4:listli1el1:xee3:numi-4e6:number1:0e",
+                new HashMap<String, Object>() {{
+                    put("dict", new HashMap<String, Object>() {{
+                        put("str", "Δ!");
+                    }});
+                    put("num", -4L);
+                }}
+            },
+            {
+                // a path through not a dictionary selects nothing
+                asList("dict", "list.x", "number.0"),
+                "d4:dictd3:bin5:bytese4:listli1el1:xee6:number1:0e",
+                new HashMap<String, Object>() {{
+                    put("dict", new HashMap<String, Object>(){{
+                        put("bin", "bytes".getBytes(US_ASCII));
+                    }});
+                }}
+            }
+        };
+    }
+
+    @Test(dataProvider = "projections")
+    void decodeDictionaryProjection(List<String> paths, String encodedDictionary,
+            Map<String, Object> decoded) throws IOException {
+        assertReflectionEquals(
+            decoded,
+            new Bdecoder(UTF_8, encodedDictionary).decodeDict(paths, "dict.bin")
+        );
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeInvalidDictionaryProjection() throws IOException {
+        new Bdecoder(UTF_8, "d3:numi-0e3:str1:xe").decodeDict(asList("str"));
+    }
+
+    @Test
+    void decodeDictionaryInRawKeyOrder() throws IOException {
+        // U+FB01 is encoded as EF AC 81 in UTF-8 and U+1F600 as F0 9F 98 80
+        SortedMap<String, Object> dictionary =
+                new Bdecoder(UTF_8, "d4:\uD83D\uDE00i2e1:zi3e3:\uFB01i1ee").decodeDict();
+        assertEquals(new ArrayList<>(dictionary.keySet()), asList("z", "\uFB01", "\uD83D\uDE00"));
+    }
+
+    @Test(dataProvider = "dictionaries")
+    void decodeDictionaryLazily(
+            String encodedDictionary,
+            Map<String, Object> decoded
+    ) throws IOException {
+        assertReflectionEquals(decoded, new Bdecoder(UTF_8, encodedDictionary).lazy().decodeDict());
+    }
+
+    @Test
+    void accessLazyValues() throws IOException {
+        SortedMap<String, Object> dictionary = new Bdecoder(UTF_8,
+                ByteBuffer.wrap("d1:al1:xd1:bi1eee1:c3:bin1:di4ee".getBytes(US_ASCII)))
+            .lazy()
+            .decodeDict("c");
+        assertEquals(dictionary.keySet(), asList("a", "c", "d"));
+        assertEquals(dictionary.get("d"), 4L);
+        assertEquals(dictionary.get("c"), ByteBuffer.wrap("bin".getBytes(US_ASCII)));
+        List<?> list = (List<?>) dictionary.get("a");
+        assertEquals(list.size(), 2);
+        assertEquals(((Map<?, ?>) list.get(1)).get("b"), 1L);
+        assertEquals(list.get(0), "x");
+        assertEquals(dictionary.tailMap("b").keySet(), asList("c", "d"));
+        dictionary.put("d", 5L);
+        assertEquals(dictionary.get("d"), 5L);
+    }
+
+    @DataProvider
+    Object[][] binarySources() {
+        String encoded = "d1:a3:bin1:bd1:c3:binee";
+        return new Object[][] {
+            {
+                new Bdecoder(UTF_8, encoded),
+                new Bdecoder(UTF_8, encoded).lazy(),
+                byte[].class
+            },
+            {
+                new Bdecoder(UTF_8, ByteBuffer.wrap(encoded.getBytes(UTF_8))),
+                new Bdecoder(UTF_8, ByteBuffer.wrap(encoded.getBytes(UTF_8))).lazy(),
+                ByteBuffer.class
+            }
+        };
+    }
+
+    @Test(dataProvider = "binarySources")
+    void decodeBinaryPropertiesLazilyAsEagerly(Bdecoder eagerDecoder, Bdecoder lazyDecoder,
+            Class<?> type) throws IOException {
+        Map<String, Object> eager = eagerDecoder.decodeDict("a", "b.c");
+        Map<String, Object> lazy = lazyDecoder.decodeDict("a", "b.c");
+
+        assertTrue(type.isInstance(eager.get("a")));
+        assertTrue(type.isInstance(lazy.get("a")));
+        assertTrue(type.isInstance(((Map<?, ?>) eager.get("b")).get("c")));
+        assertTrue(type.isInstance(((Map<?, ?>) lazy.get("b")).get("c")));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeStreamLazily() throws IOException {
+        new Bdecoder(UTF_8, new ByteArrayInputStream(new byte[0])).lazy();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeInvalidDictionaryLazily() throws IOException {
+        new Bdecoder(UTF_8, "d1:ai-0ee").lazy().decodeDict();
+    }
+
     @DataProvider
     Object[][] invalidDictionaries() {
         return new Object[][] {
@@ -219,4 +414,327 @@ public class BdecoderTest {
     void decodeInvalidDictionary(String invalidDictionary) throws IOException {
         new Bdecoder(UTF_8, invalidDictionary).decodeDict();
     }
+
+    @Test
+    void resetDecoder() throws IOException {
+        bdecoder = new Bdecoder(UTF_8, new ByteArrayInputStream("i1ei2e".getBytes(US_ASCII)));
+        assertEquals(bdecoder.decodeInt(), 1L);
+        bdecoder.reset(new ByteArrayInputStream("3:abc".getBytes(US_ASCII)));
+        assertEquals(bdecoder.decodeString(), "abc");
+        Map<String, Object> dictionary = bdecoder
+            .reset(ByteBuffer.wrap("d1:b1:xe".getBytes(US_ASCII)))
+            .lazy()
+            .decodeDict("b");
+        assertEquals(dictionary.get("b"), ByteBuffer.wrap(new byte[]{0x78}));
+        dictionary = bdecoder
+            .reset(new ByteArrayInputStream("d1:b1:ye".getBytes(US_ASCII)))
+            .decodeDict("b");
+        assertEquals(dictionary.get("b"), new byte[]{0x79});
+    }
+
+    @Test
+    void decodeFromTricklingStream() throws IOException {
+        final char[] value = new char[10000];
+        Arrays.fill(value, 'x');
+        final String encoded = "d3:bin10000:" + new String(value) + "3:numi42ee";
+        // hands out a single byte per read
+        InputStream stream = new FilterInputStream(
+                new ByteArrayInputStream(encoded.getBytes(US_ASCII))) {
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return super.read(bytes, offset, Math.min(length, 1));
+            }
+        };
+
+        Map<String, Object> decoded = new Bdecoder(UTF_8, stream).decodeDict("bin");
+        assertEquals(((byte[]) decoded.get("bin")).length, 10000);
+        assertEquals(decoded.get("num"), 42L);
+    }
+
+    @Test
+    void decodeByteBuffer() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap("xx4:2397i5e".getBytes(US_ASCII));
+        buffer.position(2);
+        bdecoder = new Bdecoder(UTF_8, buffer.slice());
+
+        ByteBuffer decoded = bdecoder.decodeByteBuffer();
+        assertEquals(decoded.remaining(), 4);
+        assertEquals(decoded.get(0), 0x32);
+        assertEquals(bdecoder.decodeInt(), 5);
+        assertEquals(buffer.position(), 2, "source buffer position should not change");
+    }
+
+    @Test
+    void decodeDictionaryFromDirectBuffer() throws IOException {
+        final byte[] value = new byte[10000];
+        Arrays.fill(value, (byte) 0x78);
+        final byte[] encoded = ("d3:bin10000:" + new String(value, US_ASCII) + "3:str2:Δe")
+                .getBytes(UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length);
+        buffer.put(encoded).flip();
+
+        Map<String, Object> decoded = new Bdecoder(UTF_8, buffer).decodeDict("bin");
+        ByteBuffer bin = (ByteBuffer) decoded.get("bin");
+        assertTrue(bin.isDirect(), "binary value should be a view of the source buffer");
+        assertEquals(bin.remaining(), 10000);
+        assertEquals(decoded.get("str"), "Δ");
+    }
+
+    @DataProvider
+    Object[][] keys() {
+        return new Object[][] {
+            { UTF_8     , "d4:pathi1e3:Δxi2e2:Δi3ee"              , asList("path", "Δ", "Δx") },
+            { US_ASCII  , "d4:pathi1ee"                           , asList("path")            },
+            { ISO_8859_1, "d2:\u00e9ei1e4:pathi2ee"               , asList("path", "\u00e9e") },
+            { UTF_16BE  , "d4:\u0000a\u0000bi1e2:\u0003\u0094i2ee", asList("ab", "\u0394")    }
+        };
+    }
+
+    @Test(dataProvider = "keys")
+    void decodeKeys(Charset charset, String encoded, List<String> keys) throws IOException {
+        // UTF-16BE markers are decoded from the single bytes of the string
+        byte[] bytes = UTF_16BE.equals(charset) ? encoded.getBytes(ISO_8859_1)
+                : encoded.getBytes(charset);
+
+        assertEquals(new ArrayList<>(new Bdecoder(charset, ByteBuffer.wrap(bytes))
+                .decodeDict().keySet()), keys);
+        assertEquals(new ArrayList<>(new Bdecoder(charset, new ByteArrayInputStream(bytes))
+                .decodeDict().keySet()), keys);
+    }
+
+    @Test
+    void shareRepeatedKeys() throws IOException {
+        String longKey = String.format("%0100d", 0);
+        List<Object> decoded = new Bdecoder(UTF_8, new ByteArrayInputStream(
+                ("ld6:lengthi1e100:" + longKey + "i1eed6:lengthi2e100:" + longKey + "i2eee")
+                        .getBytes(UTF_8))).decodeList();
+
+        Iterator<?> first = ((Map<?, ?>) decoded.get(0)).keySet().iterator();
+        Iterator<?> second = ((Map<?, ?>) decoded.get(1)).keySet().iterator();
+        assertEquals(first.next(), longKey);
+        assertEquals(second.next(), longKey);
+        assertSame(first.next(), second.next());
+    }
+
+    @Test
+    void decodeCharSequences() throws IOException {
+        String encoded = "d3:keyl3:Δxi1ee3:str5:valuee";
+        Map<String, Object> decoded = new Bdecoder(UTF_8, encoded).charSequences().decodeDict();
+        Map<String, Object> streamed = new Bdecoder(UTF_8,
+                new ByteArrayInputStream(encoded.getBytes(UTF_8))).charSequences().decodeDict();
+
+        assertEquals(decoded, streamed);
+        Bstring str = (Bstring) decoded.get("str");
+        assertEquals(str.toString(), "value");
+        assertEquals(str.length(), 5);
+        assertEquals(str.subSequence(1, 3), "al");
+        assertEquals(str.bytes(), ByteBuffer.wrap("value".getBytes(UTF_8)));
+        Bstring delta = (Bstring) ((List<?>) decoded.get("key")).get(0);
+        assertEquals(delta.length(), 2);
+        assertEquals(delta.charAt(0), 'Δ');
+        assertEquals(new Bdecoder(UTF_8, encoded).decodeDict().get("str"), "value");
+    }
+
+    @Test
+    void decodeCharSequencesFromDirectBuffer() throws IOException {
+        byte[] encoded = "l2:Δe".getBytes(UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length);
+        buffer.put(encoded).flip();
+
+        Bstring decoded = (Bstring) new Bdecoder(UTF_8, buffer).charSequences().decodeList().get(0);
+        assertTrue(decoded.bytes().isDirect(), "bytes should be a view of the source buffer");
+        assertEquals(decoded.toString(), "Δ");
+    }
+
+    @Test
+    void decodeCharSequencesInParallel() throws IOException {
+        StringBuilder list = new StringBuilder("l");
+        for (int i = 0; i < 1000; i++) {
+            list.append("4:path");
+        }
+        List<Object> decoded = new Bdecoder(UTF_8, list.append('e').toString())
+            .charSequences()
+            .parallel(pool)
+            .decodeList();
+
+        assertEquals(decoded.size(), 1000);
+        assertEquals(decoded.get(999), new Bstring(ByteBuffer.wrap("path".getBytes(UTF_8)), UTF_8));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeTruncatedByteBuffer() throws IOException {
+        new Bdecoder(UTF_8, ByteBuffer.wrap("9:2532".getBytes(US_ASCII))).decodeByteBuffer();
+    }
+
+    @Test
+    void decodeRawValues() throws IOException {
+        String encoded = "d1:ad1:bli1ee1:ci2ee1:bd1:bi3eee";
+        Map<String, Object> decoded = new Bdecoder(UTF_8, encoded).raw("a.b", "b").decodeDict();
+
+        assertEquals(((Map<?, ?>) decoded.get("a")).get("b"),
+                new Braw(ByteBuffer.wrap("li1ee".getBytes(UTF_8))));
+        assertEquals(((Map<?, ?>) decoded.get("a")).get("c"), 2L);
+        assertEquals(new Bdecoder(UTF_8, ((Braw) decoded.get("b")).bytes()).decodeDict(),
+                Collections.singletonMap("b", 3L));
+    }
+
+    @Test
+    void decodeRawValuesOfTopLevelOnly() throws IOException {
+        // raw properties are of top-level dictionaries, not of the ones nested in lists
+        List<Object> decoded = new Bdecoder(UTF_8, "ld1:ai1eee").raw("a").decodeList();
+        assertEquals(decoded, asList(Collections.singletonMap("a", 1L)));
+
+        bdecoder = new Bdecoder(UTF_8, "d1:ai1ee").raw("a");
+        bdecoder.reset(ByteBuffer.wrap("d1:ai1ee".getBytes(UTF_8)));
+        assertEquals(bdecoder.decodeDict(), Collections.singletonMap("a", 1L));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeRawValuesFromStream() throws IOException {
+        new Bdecoder(UTF_8, new ByteArrayInputStream(new byte[0])).raw("info");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeTruncatedRawValue() throws IOException {
+        new Bdecoder(UTF_8, "d1:ali1ee").raw("a").decodeDict();
+    }
+
+    @Test
+    void iterateValues() throws IOException {
+        bdecoder = new Bdecoder(UTF_8, new ByteArrayInputStream(
+                "d3:keyi1eei2e4:spamli3eed3:key5:valuee".getBytes(UTF_8)));
+
+        List<Object> values = new ArrayList<>();
+        for (Iterator<Object> iterator = bdecoder.values(); iterator.hasNext();) {
+            values.add(iterator.next());
+        }
+        assertEquals(values, asList(Collections.singletonMap("key", 1L), 2L, "spam", asList(3L),
+                Collections.singletonMap("key", "value")));
+        assertFalse(bdecoder.hasRemaining());
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    void iterateEmptySource() throws IOException {
+        Iterator<Object> values = new Bdecoder(UTF_8, "").values();
+
+        assertFalse(values.hasNext());
+        values.next();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void iterateTruncatedValues() throws IOException {
+        Iterator<Object> values = new Bdecoder(UTF_8, new ByteArrayInputStream(
+                "i1eli2e".getBytes(UTF_8))).values();
+
+        assertEquals(values.next(), 1L);
+        assertTrue(values.hasNext());
+        values.next();
+    }
+
+    @Test
+    void decodeAllValues() throws IOException {
+        StringBuilder messages = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            messages.append("d4:peer4:host4:porti").append(i).append("ee");
+        }
+        byte[] encoded = messages.append("i1e").toString().getBytes(UTF_8);
+
+        List<Object> sequential = new Bdecoder(UTF_8, new ByteArrayInputStream(encoded))
+            .decodeAll();
+        List<Object> parallel = new Bdecoder(UTF_8, ByteBuffer.wrap(encoded))
+            .parallel(pool)
+            .decodeAll();
+        assertEquals(sequential.size(), 1001);
+        assertEquals(((Map<?, ?>) sequential.get(42)).get("port"), 42L);
+        assertEquals(parallel, sequential);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void decodeAllTruncatedValues() throws IOException {
+        new Bdecoder(UTF_8, ByteBuffer.wrap("i1ed1:a".getBytes(UTF_8)))
+            .parallel(pool)
+            .decodeAll();
+    }
+
+    @DataProvider
+    Object[][] exceededLimits() {
+        return new Object[][] {
+            { Blimits.UNLIMITED.maxStringLength(4) , "d3:key5:valuee"    },
+            { Blimits.UNLIMITED.maxStringLength(4) , "2147483647:"       },
+            { Blimits.UNLIMITED.maxDepth(2)        , "llleee"            },
+            { Blimits.UNLIMITED.maxDepth(2)        , "ld1:ald1:bi1eeeee" },
+            { Blimits.UNLIMITED.maxElements(2)     , "li1ei2ei3ee"       },
+            { Blimits.UNLIMITED.maxElements(1)     , "d1:ai1e1:bi2ee"    },
+            { Blimits.UNLIMITED.maxTotalBytes(10)  , "l5:abcde5:abcdee"  },
+            { Blimits.UNLIMITED.maxTotalBytes(10)  , "llelelelelelee"    }
+        };
+    }
+
+    @Test(dataProvider = "exceededLimits", expectedExceptions = IllegalStateException.class)
+    void decodeBeyondLimits(Blimits limits, String encoded) throws IOException {
+        new Bdecoder(UTF_8, new ByteArrayInputStream(encoded.getBytes(UTF_8)))
+            .limits(limits)
+            .decodeObject();
+    }
+
+    @Test(dataProvider = "exceededLimits", expectedExceptions = IllegalStateException.class)
+    void decodeNodeBeyondLimits(Blimits limits, String encoded) throws IOException {
+        new Bdecoder(UTF_8, new ByteArrayInputStream(encoded.getBytes(UTF_8)))
+            .limits(limits)
+            .decodeNode();
+    }
+
+    @Test(dataProvider = "exceededLimits", expectedExceptions = IllegalStateException.class)
+    void decodeLazilyBeyondLimits(Blimits limits, String encoded) throws IOException {
+        Object decoded = new Bdecoder(UTF_8, encoded).limits(limits).lazy().decodeObject();
+        // lazy values are located, not decoded, strings are checked while decoding
+        decoded.toString();
+    }
+
+    @Test
+    void decodeWithinLimits() throws IOException {
+        Blimits limits = Blimits.UNLIMITED
+            .maxStringLength(5)
+            .maxDepth(2)
+            .maxElements(2)
+            .maxTotalBytes(25);
+        bdecoder = new Bdecoder(UTF_8, "d3:keyl5:valuei1ee1:ni2ee").limits(limits);
+
+        assertEquals(bdecoder.decodeDict().get("key"), asList("value", 1L));
+        assertEquals(bdecoder.reset(ByteBuffer.wrap("l5:valuee".getBytes(UTF_8))).decodeList(),
+                asList("value"));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void keepLimitsOnReset() throws IOException {
+        new Bdecoder(UTF_8, "le")
+            .limits(Blimits.UNLIMITED.maxDepth(1))
+            .reset(new ByteArrayInputStream("llee".getBytes(UTF_8)))
+            .decodeList();
+    }
+
+    @Test
+    void decodeDeeplyNested() throws IOException {
+        StringBuilder nested = new StringBuilder("d1:al");
+        for (int i = 0; i < 100000; i++) {
+            nested.append("d1:al");
+        }
+        nested.append("i1e");
+        for (int i = 0; i < 100000; i++) {
+            nested.append("ee");
+        }
+        byte[] encoded = nested.append("e1:bi2ee").toString().getBytes(UTF_8);
+
+        Map<String, Object> decoded = new Bdecoder(UTF_8, ByteBuffer.wrap(encoded)).decodeDict();
+        assertEquals(decoded.get("b"), 2L);
+        Bnode node = new Bdecoder(UTF_8, ByteBuffer.wrap(encoded)).decodeNode();
+        assertEquals(node.get("b").intValue(), 2L);
+        Map<String, Object> projected = new Bdecoder(UTF_8, ByteBuffer.wrap(encoded))
+            .decodeDict(asList("b"));
+        assertEquals(projected, Collections.singletonMap("b", 2L));
+        Map<String, Object> lazy = new Bdecoder(UTF_8, ByteBuffer.wrap(encoded))
+            .lazy()
+            .decodeDict();
+        assertEquals(lazy.get("b"), 2L);
+    }
 }
@@ -5,11 +5,17 @@ import org.testng.annotations.Test;
 import org.testng.annotations.DataProvider;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.*;
 
 import static java.nio.charset.StandardCharsets.*;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
 
 @Test
 @SuppressWarnings("PMD.TooManyMethods")
@@ -27,10 +33,11 @@ public class BencoderTest {
     @DataProvider
     Object[][] integers() {
         return new Object[][] {
-            { 42         , "i42e"         },
-            { 8589934592L, "i8589934592e" }, // bytes in 8Gb
-            { -13        , "i-13e"        },
-            { 0          , "i0e"          }
+            { 42            , "i42e"                   },
+            { 8589934592L   , "i8589934592e"           }, // bytes in 8Gb
+            { -13           , "i-13e"                  },
+            { 0             , "i0e"                    },
+            { Long.MIN_VALUE, "i-9223372036854775808e" }
         };
     }
 
@@ -45,7 +52,7 @@ public class BencoderTest {
     Object[][] strings() {
         return new Object[][] {
             { "hello world", "11:hello world" },
-            { "watermill⌘" , "10:watermill⌘"  },
+            { "watermill⌘" , "12:watermill⌘"  }, // length is in bytes
             { ""           , "0:"             }
         };
     }
@@ -57,6 +64,37 @@ public class BencoderTest {
         assertEquals(output.toByteArray(), encodedString.getBytes(UTF_8));
     }
 
+    @Test
+    void encodeLongString() throws IOException {
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'Ж');
+        String string = new String(chars);
+        bencoder.encode(Arrays.asList(string, string));
+
+        assertEquals(new Bdecoder(UTF_8, new String(output.toByteArray(), UTF_8)).decodeList(),
+                Arrays.asList(string, string));
+    }
+
+    @Test
+    void encodeStringInUtf16() throws IOException {
+        new Bencoder(UTF_16BE, output).encode("ok");
+
+        assertEquals(output.toByteArray(), new byte[]{0x34, 0x3a, 0, 0x6f, 0, 0x6b});
+    }
+
+    @Test
+    void encodeDictionariesInUtf16() throws IOException {
+        new Bencoder(UTF_16BE, output).encode(Arrays.asList(
+                Collections.singletonMap("k", 1),
+                Collections.singletonMap("k", 2)));
+
+        assertEquals(output.toByteArray(), new byte[]{
+            'l',
+                'd', '2', ':', 0, 'k', 'i', '1', 'e', 'e',
+                'd', '2', ':', 0, 'k', 'i', '2', 'e', 'e',
+            'e'});
+    }
+
     @Test
     void encodeBytes() throws IOException {
         byte[] bytes = new byte[]{(byte) 0x65, (byte) 0x10, (byte) 0xf3, (byte) 0x29};
@@ -69,11 +107,60 @@ public class BencoderTest {
                 "Byte strings should not be changed during encoding");
     }
 
+    @Test
+    void encodeCharSequence() throws IOException {
+        bencoder.encode(Arrays.asList(new Bstring(ByteBuffer.wrap("Δ".getBytes(UTF_8)), UTF_8)));
+
+        assertEquals(output.toString("UTF-8"), "l2:Δe");
+    }
+
+    @Test
+    void encodeRawValue() throws IOException {
+        byte[] pieces = new byte[100000];
+        byte[] info = ("d6:pieces100000:" + new String(pieces, US_ASCII) + "e").getBytes(UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(info.length);
+        direct.put(info).flip();
+        Map<String, Object> torrent = new TreeMap<>();
+        torrent.put("announce", "url");
+        torrent.put("info", new Braw(direct));
+
+        bencoder.encode(torrent);
+        bencoder.encode(Arrays.asList(new Braw(ByteBuffer.wrap(info))));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write("d8:announce3:url4:info".getBytes(UTF_8));
+        expected.write(info);
+        expected.write("el".getBytes(UTF_8));
+        expected.write(info);
+        expected.write("e".getBytes(UTF_8));
+        assertEquals(output.toByteArray(), expected.toByteArray());
+    }
+
+    @DataProvider
+    Object[][] byteBuffers() {
+        ByteBuffer direct = ByteBuffer.allocateDirect(3);
+        direct.put(new byte[]{0x31, 0x32, 0x33}).flip();
+        ByteBuffer sliced = ByteBuffer.wrap(new byte[]{0x30, 0x31, 0x32, 0x33});
+        sliced.position(1);
+        return new Object[][] {
+            { direct        , "3:123" },
+            { sliced.slice(), "3:123" },
+            { sliced        , "3:123" }
+        };
+    }
+
+    @Test(dataProvider = "byteBuffers")
+    void encodeByteBuffer(ByteBuffer byteBuffer, String encodedBytes) throws IOException {
+        bencoder.encode(Arrays.asList(byteBuffer));
+
+        assertEquals(output.toByteArray(), ("l" + encodedBytes + "e").getBytes(US_ASCII));
+        assertEquals(byteBuffer.remaining(), 3, "buffer position should not change");
+    }
+
     @DataProvider
     Object[][] lists() {
         return new Object[][] {
             { Collections.emptyList()                       , "le"                  },
-            { Arrays.asList(new Object[]{87L, "watermill⌘"}), "li87e10:watermill⌘e" },
+            { Arrays.asList(new Object[]{87L, "watermill⌘"}), "li87e12:watermill⌘e" },
             { Arrays.asList((byte) 4, "hey")                 , "li4e3:heye"          },
             {
                 Arrays.asList(
@@ -120,6 +207,36 @@ public class BencoderTest {
                 }},
                 "d7:anupperi-12e3:endi92e5:starti42ee"
             },
+            {
+                new TreeMap<String, Object>(Collections.reverseOrder()) {{
+                    put("end", 1);
+                    put("start", 2);
+                    put("anupper", 3);
+                }},
+                "d7:anupperi3e3:endi1e5:starti2ee"
+            },
+            {
+                new TreeMap<String, Object>() {{
+                    put("start", 2);
+                    put("anupper", 3);
+                }},
+                "d7:anupperi3e5:starti2ee"
+            },
+            {
+                // keys are ordered by UTF-8 bytes, U+FB01 is EF AC 81 and U+1F600 is F0 9F 98 80
+                new TreeMap<String, Object>() {{
+                    put("\uD83D\uDE00", 2);
+                    put("\uFB01", 1);
+                }},
+                "d3:\uFB01i1e4:\uD83D\uDE00i2ee"
+            },
+            {
+                new HashMap<String, Object>() {{
+                    put("\uD83D\uDE00", 2);
+                    put("\uFB01", 1);
+                }},
+                "d3:\uFB01i1e4:\uD83D\uDE00i2ee"
+            },
             {
                 new HashMap<String, Object>() {{
                     put("life", (byte) 9);
@@ -129,7 +246,7 @@ public class BencoderTest {
                     }});
                     put("sk❅", "grey");
                 }},
-                "d5:innerd3:key5:valuee4:lifei9e4:listl5:hello5:worldi0ei-12ee3:sk❅4:greye"
+                "d5:innerd3:key5:valuee4:lifei9e4:listl5:hello5:worldi0ei-12ee5:sk❅4:greye"
             }
         };
     }
@@ -144,6 +261,48 @@ public class BencoderTest {
         assertEquals(output.toByteArray(), encodedDictionary.getBytes(UTF_8));
     }
 
+    @Test
+    void encodeUnsortedDictionaryInUtf16() throws IOException {
+        // UTF-16LE puts the low byte first, so "\u0200" < "\u0101" < "\u0002" by raw bytes
+        Map<String, Object> dictionary = new HashMap<>();
+        dictionary.put("\u0002", 3);
+        dictionary.put("\u0101", 2);
+        dictionary.put("\u0200", 1);
+        new Bencoder(UTF_16LE, output).encode(dictionary);
+
+        assertEquals(output.toByteArray(), new byte[]{
+            'd',
+                '2', ':', 0, 2, 'i', '1', 'e',
+                '2', ':', 1, 1, 'i', '2', 'e',
+                '2', ':', 2, 0, 'i', '3', 'e',
+            'e'});
+    }
+
+    @Test
+    void encodeMoreKeysThanCached() throws IOException {
+        Map<String, Object> dictionary = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            dictionary.put("key" + i, i);
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write('d');
+        for (Map.Entry<String, Object> entry : dictionary.entrySet()) {
+            byte[] key = entry.getKey().getBytes(UTF_16BE);
+            expected.write((key.length + ":").getBytes(US_ASCII));
+            expected.write(key);
+            expected.write(("i" + entry.getValue() + "e").getBytes(US_ASCII));
+        }
+        expected.write('e');
+        Bencoder utf16 = new Bencoder(UTF_16BE, output);
+        utf16.encode(new HashMap<>(dictionary));
+        utf16.encode(new HashMap<>(dictionary));
+
+        byte[] encoded = expected.toByteArray();
+        assertEquals(Arrays.copyOfRange(output.toByteArray(), 0, encoded.length), encoded);
+        assertEquals(Arrays.copyOfRange(output.toByteArray(), encoded.length, output.size()),
+                encoded);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     void encodeInvalidDictionary() throws IOException {
         Map<String, Object> dictionary = new HashMap<>();
@@ -152,6 +311,62 @@ public class BencoderTest {
         bencoder.encode(dictionary);
     }
 
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    @SuppressWarnings("unchecked")
+    void encodeDictionaryWithInvalidKey() throws IOException {
+        Map<Object, Object> dictionary = new HashMap<>();
+        dictionary.put(1, "value");
+        bencoder.encode((Map<String, Object>) (Map<?, ?>) dictionary);
+    }
+
+    @DataProvider
+    Object[][] failingValues() {
+        Map<String, Object> dictionary = new HashMap<>();
+        dictionary.put("a", "x");
+        dictionary.put("b", 1.5d);
+        return new Object[][] {
+            { dictionary                                                              },
+            { Arrays.asList(1, "x", 1.5d)                                             },
+            { Arrays.asList(1, Collections.singletonMap("a", Arrays.asList(2, 1.5d))) }
+        };
+    }
+
+    @Test(dataProvider = "failingValues")
+    @SuppressWarnings("unchecked")
+    void encodeAfterFailedValue(Object value) throws IOException {
+        try {
+            if (value instanceof Map) {
+                bencoder.encode((Map<String, Object>) value);
+            } else {
+                bencoder.encode((List<Object>) value);
+            }
+            fail("Unsupported value was encoded");
+        } catch (IllegalArgumentException e) {
+            // the bytes written before the failure must not precede the next value
+        }
+        bencoder.encode(42L);
+
+        assertEquals(output.toByteArray(), "i42e".getBytes(UTF_8));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    @SuppressWarnings("unchecked")
+    void encodeSortedDictionaryWithInvalidKey() throws IOException {
+        Map<Object, Object> dictionary = new TreeMap<>();
+        dictionary.put(1, "value");
+        bencoder.encode((Map<String, Object>) (Map<?, ?>) dictionary);
+    }
+
+    @Test
+    void resetEncoder() throws IOException {
+        bencoder.encode(1);
+        ByteArrayOutputStream anotherOutput = new ByteArrayOutputStream();
+        bencoder.reset(anotherOutput).encode(2);
+
+        assertEquals(output.toByteArray(), "i1e".getBytes(UTF_8));
+        assertEquals(anotherOutput.toByteArray(), "i2e".getBytes(UTF_8));
+    }
+
     @Test
     void chainedEncoding() throws IOException {
         bencoder
@@ -161,6 +376,63 @@ public class BencoderTest {
             .encode(Arrays.<Object>asList(4, 3))
             .encode(new HashMap<String, Object>(){{ put("k", "Ω"); }})
             .encode(9);
-        assertEquals(output.toByteArray(), "i5e4:ello2:12li4ei3eed1:k1:Ωei9e".getBytes(UTF_8));
+        assertEquals(output.toByteArray(), "i5e4:ello2:12li4ei3eed1:k2:Ωei9e".getBytes(UTF_8));
+    }
+
+    @Test
+    void encodeToChannel() throws IOException {
+        byte[] large = new byte[20000];
+        Arrays.fill(large, (byte) 'x');
+        ByteBuffer direct = ByteBuffer.allocateDirect(large.length);
+        direct.put(large).flip();
+
+        new Bencoder(UTF_8, Channels.newChannel(output))
+            .encode(Arrays.<Object>asList(7, large, direct, "end"));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write("li7e20000:".getBytes(UTF_8));
+        expected.write(large);
+        expected.write("20000:".getBytes(UTF_8));
+        expected.write(large);
+        expected.write("3:ende".getBytes(UTF_8));
+        assertEquals(output.toByteArray(), expected.toByteArray());
+        assertEquals(direct.remaining(), large.length);
+    }
+
+    @Test
+    void encodeFileRegion() throws IOException {
+        File file = File.createTempFile("bencoder", ".bin");
+        file.deleteOnExit();
+        File encodedFile = File.createTempFile("bencoded", ".bin");
+        encodedFile.deleteOnExit();
+        byte[] large = new byte[10000];
+        try (RandomAccessFile source = new RandomAccessFile(file, "rw");
+             RandomAccessFile target = new RandomAccessFile(encodedFile, "rw")) {
+            source.write("0123456789".getBytes(UTF_8));
+            FileChannel sourceChannel = source.getChannel();
+            FileChannel targetChannel = target.getChannel();
+
+            bencoder.encode(sourceChannel, 2, 5).encode(Arrays.<Object>asList(sourceChannel));
+            bencoder.reset(targetChannel).encode(1).encode(large).encode(sourceChannel, 8, 2);
+
+            assertEquals(output.toByteArray(), "5:23456l10:0123456789e".getBytes(UTF_8));
+            ByteBuffer encoded = ByteBuffer.allocate((int) targetChannel.size());
+            targetChannel.read(encoded, 0);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            expected.write("i1e10000:".getBytes(UTF_8));
+            expected.write(large);
+            expected.write("2:89".getBytes(UTF_8));
+            assertEquals(encoded.array(), expected.toByteArray());
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    void encodeFileRegionPastEnd() throws IOException {
+        File file = File.createTempFile("bencoder", ".bin");
+        file.deleteOnExit();
+        try (RandomAccessFile source = new RandomAccessFile(file, "rw")) {
+            source.write("0123".getBytes(UTF_8));
+            bencoder.encode(source.getChannel(), 2, 5);
+        }
     }
 }
@@ -0,0 +1,178 @@
+package org.benjamin;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Iterator;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+@Test
+public class BmetricsTest {
+
+    Bmetrics metrics;
+
+    @BeforeMethod
+    void setUp() {
+        metrics = new Bmetrics();
+    }
+
+    @Test
+    void countDecodedValues() throws IOException {
+        String encoded = "d3:bari-4e3:fool4:spamd1:ai1eeee";
+
+        new Bdecoder(UTF_8, encoded).listener(metrics).decodeDict();
+        new Bdecoder(UTF_8, new ByteArrayInputStream(encoded.getBytes(UTF_8))).listener(metrics)
+                .decodeNode();
+
+        assertEquals(metrics.getDecoded(), 2);
+        assertEquals(metrics.getBytesRead(), 2 * encoded.length());
+        assertEquals(metrics.getIntegers(), 4);
+        assertEquals(metrics.getByteStrings(), 8); // keys are byte strings as well
+        assertEquals(metrics.getLists(), 2);
+        assertEquals(metrics.getDictionaries(), 4);
+        assertEquals(metrics.getMaxDepth(), 3);
+        assertEquals(metrics.getMaxStringLength(), 4);
+        assertEquals(metrics.getFailed(), 0);
+    }
+
+    @Test
+    void countEachTopLevelValue() throws IOException {
+        Iterator<Object> values = new Bdecoder(UTF_8, "i1e4:spamli2ee").listener(metrics).values();
+        while (values.hasNext()) {
+            values.next();
+        }
+
+        assertEquals(metrics.getDecoded(), 3);
+        assertEquals(metrics.getBytesRead(), 14);
+        assertEquals(metrics.getIntegers(), 2);
+        assertEquals(metrics.getByteStrings(), 1);
+        assertEquals(metrics.getLists(), 1);
+    }
+
+    @Test
+    void countSkippedValues() throws IOException {
+        new Bdecoder(UTF_8, "d3:bari1e3:fooli2ei3eee").listener(metrics)
+                .decodeDict(Collections.singleton("bar"));
+
+        assertEquals(metrics.getDecoded(), 1);
+        assertEquals(metrics.getIntegers(), 3);
+        assertEquals(metrics.getLists(), 1);
+    }
+
+    @Test
+    void keepListenerOnReset() throws IOException {
+        Bdecoder bdecoder = new Bdecoder(UTF_8, "i1e").listener(metrics);
+        bdecoder.decodeInt();
+        bdecoder.reset(new ByteArrayInputStream("i2e".getBytes(UTF_8))).decodeInt();
+        bdecoder.listener(null).reset(new ByteArrayInputStream("i3e".getBytes(UTF_8)))
+                .decodeInt();
+
+        assertEquals(metrics.getDecoded(), 2);
+        assertEquals(metrics.getBytesRead(), 6);
+    }
+
+    @DataProvider
+    Object[][] failures() {
+        return new Object[][] {
+            { "i-0e"                  , Bfailure.NEGATIVE_ZERO        },
+            { "i042e"                 , Bfailure.ZERO_PADDING         },
+            { "l4:spam"               , Bfailure.PREMATURE_END        },
+            { "d3:foo"                , Bfailure.PREMATURE_END        },
+            { "li1e"                  , Bfailure.PREMATURE_END        },
+            { "i4z2e"                 , Bfailure.UNEXPECTED_CHARACTER },
+            { "lxe"                   , Bfailure.UNEXPECTED_CHARACTER }, // string length expected
+            { "i9223372036854775808e" , Bfailure.OUT_OF_RANGE         },
+            { "l2147483648:"          , Bfailure.OUT_OF_RANGE         }, // string length
+            { "l12"                   , Bfailure.PREMATURE_END        }  // string length
+        };
+    }
+
+    @Test(dataProvider = "failures")
+    void categorizeFailures(String encoded, Bfailure failure) throws IOException {
+        try {
+            new Bdecoder(UTF_8, encoded).listener(metrics).decodeAll();
+            fail("Invalid data was decoded");
+        } catch (IllegalStateException | NumberFormatException e) {
+            assertEquals(metrics.getFailures().get(failure.name()), Long.valueOf(1));
+        }
+        assertEquals(metrics.getFailed(), 1);
+        assertEquals(metrics.getDecoded(), 0);
+    }
+
+    @Test
+    void categorizeExceededLimit() throws IOException {
+        try {
+            new Bdecoder(UTF_8, "llee").limits(Blimits.UNLIMITED.maxDepth(1)).listener(metrics)
+                    .decodeList();
+            fail("Limit was not checked");
+        } catch (IllegalStateException e) {
+            assertEquals(metrics.getFailures().get(Bfailure.LIMIT_EXCEEDED.name()),
+                    Long.valueOf(1));
+        }
+    }
+
+    @Test
+    void categorizeBoundIntegerOutOfRange() throws IOException {
+        try {
+            new Bdecoder(UTF_8, "d6:weighti4294967296ee").listener(metrics)
+                    .decode(Bbinding.of(BbindingTest.Entry.class));
+            fail("Integer out of int range was decoded");
+        } catch (IllegalStateException e) {
+            assertEquals(metrics.getFailures().get(Bfailure.OUT_OF_RANGE.name()),
+                    Long.valueOf(1));
+        }
+    }
+
+    @Test
+    void categorizeByThrowSiteOnly() {
+        // the category is not told by the message
+        assertEquals(Bfailure.of(new IllegalStateException("Unexpected character")),
+                Bfailure.OTHER);
+        assertEquals(Bfailure.of(new IllegalStateException("Value is out of range")),
+                Bfailure.OTHER);
+        assertEquals(Bfailure.of(new IllegalStateException("Failed to decode element 1",
+                ByteInput.streamEnded())), Bfailure.PREMATURE_END);
+    }
+
+    @Test
+    void countEncodedValues() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Bencoder bencoder = new Bencoder(UTF_8, output).listener(metrics);
+        bencoder.encode(Collections.singletonMap("spam", Collections.singletonList(42)));
+        bencoder.encode(new byte[10000]);
+        new Bwriter(UTF_8, output).listener(metrics).beginList().value(1).value(2).end();
+
+        assertEquals(metrics.getEncoded(), 3);
+        assertEquals(metrics.getBytesWritten(), output.size());
+    }
+
+    @Test
+    void registerMBean() throws IOException, JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.register("test");
+        try {
+            new Bdecoder(UTF_8, "i42e").listener(metrics).decodeInt();
+
+            assertEquals(name.getKeyProperty("type"), "Bmetrics");
+            assertEquals(server.getAttribute(name, "Decoded"), 1L);
+            assertEquals(server.getAttribute(name, "Integers"), 1L);
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(metrics.getDecoded(), 0);
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
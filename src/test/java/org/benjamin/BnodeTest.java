@@ -0,0 +1,122 @@
+package org.benjamin;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test
+public class BnodeTest {
+
+    static final String ENCODED = "d4:infod6:lengthi1024e4:name5:Δ.ise4:listli-1e2:abee";
+
+    @DataProvider
+    Object[][] decoders() {
+        byte[] bytes = ENCODED.getBytes(UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        return new Object[][] {
+            { new Bdecoder(UTF_8, ENCODED)                          },
+            { new Bdecoder(UTF_8, new ByteArrayInputStream(bytes)) },
+            { new Bdecoder(UTF_8, direct)                           }
+        };
+    }
+
+    @Test(dataProvider = "decoders")
+    void decodeTree(Bdecoder decoder) throws IOException {
+        Bnode root = decoder.decodeNode();
+        assertEquals(root.size(), 2);
+        assertEquals(root.key(0).stringValue(UTF_8), "info");
+        Bnode info = root.get("info");
+        assertEquals(info.get("length").intValue(), 1024L);
+        assertEquals(info.get("name").stringValue(UTF_8), "Δ.is");
+        assertEquals(info.get("name".getBytes(UTF_8)).bytesValue(), "Δ.is".getBytes(UTF_8));
+        assertNull(info.get("pieces"));
+        Bnode list = root.value(1);
+        assertEquals(list.size(), 2);
+        assertEquals(list.get(0).intValue(), -1L);
+        assertEquals(list.get(1).byteBufferValue(), ByteBuffer.wrap("ab".getBytes(UTF_8)));
+    }
+
+    @Test(dataProvider = "decoders")
+    void encodeTree(Bdecoder decoder) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new Bencoder(UTF_8, output).encode(decoder.decodeNode());
+        assertEquals(output.toByteArray(), ENCODED.getBytes(UTF_8));
+    }
+
+    @Test
+    void compareTrees() throws IOException {
+        assertEquals(new Bdecoder(UTF_8, "d1:bi2e1:ai1ee").decodeNode(),
+                new Bdecoder(UTF_8, new ByteArrayInputStream("d1:ai1e1:bi2ee".getBytes(UTF_8)))
+                    .decodeNode());
+    }
+
+    @Test
+    void sortUnorderedKeys() throws IOException {
+        Bnode dictionary = new Bdecoder(UTF_8, "d1:ci3e1:ai1e1:bi2ee").decodeNode();
+        assertEquals(dictionary.key(0).stringValue(UTF_8), "a");
+        assertEquals(dictionary.get("b").intValue(), 2L);
+        assertEquals(dictionary.value(2).intValue(), 3L);
+    }
+
+    @DataProvider
+    Object[][] duplicateKeys() {
+        return new Object[][] {
+            { "d1:ai1e1:bi0e1:ai2ee" , "d1:ai2e1:bi0ee" },
+            { "d1:ai1e1:ai2e1:bi0ee" , "d1:ai2e1:bi0ee" },
+            { "d1:bi0e1:ai1e1:ai2ee" , "d1:ai2e1:bi0ee" }
+        };
+    }
+
+    @Test(dataProvider = "duplicateKeys")
+    void keepLastOfDuplicateKeys(String encoded, String expected) throws IOException {
+        Bnode dictionary = new Bdecoder(UTF_8, encoded).decodeNode();
+        assertEquals(dictionary.size(), 2);
+        assertEquals(dictionary.get("a").intValue(), 2L);
+        assertEquals(dictionary.get("a").intValue(),
+                new Bdecoder(UTF_8, encoded).decodeDict().get("a"));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new Bencoder(UTF_8, output).encode(dictionary);
+        assertEquals(output.toString("UTF-8"), expected);
+    }
+
+    @Test
+    void decodeSeveralTrees() throws IOException {
+        Bdecoder decoder =
+                new Bdecoder(UTF_8, new ByteArrayInputStream("3:one3:two".getBytes(UTF_8)));
+        Bnode first = decoder.decodeNode();
+        Bnode second = decoder.decodeNode();
+        assertEquals(first.stringValue(UTF_8), "one");
+        assertEquals(second.stringValue(UTF_8), "two");
+    }
+
+    @DataProvider
+    Object[][] invalidData() {
+        return new Object[][] {
+            { "li1e"     }, // end mark missing
+            { "d3:key"   }, // value missing
+            { "di1ei2ee" }, // integer key
+            { "5:ab"     }, // truncated string
+            { ""         }  // no data
+        };
+    }
+
+    @Test(dataProvider = "invalidData", expectedExceptions = IllegalStateException.class)
+    void decodeInvalidTree(String invalidData) throws IOException {
+        new Bdecoder(UTF_8, new ByteArrayInputStream(invalidData.getBytes(UTF_8))).decodeNode();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void accessWrongKind() throws IOException {
+        new Bdecoder(UTF_8, "i1e").decodeNode().size();
+    }
+}
@@ -0,0 +1,95 @@
+package org.benjamin;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.asList;
+import static org.benjamin.Breader.Token.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test
+public class BreaderTest {
+
+    @Test
+    void readTokens() throws IOException {
+        Breader reader = new Breader(UTF_8, "d4:listli-4e3:Ωwe3:numi42ee");
+        List<Object> events = new ArrayList<>();
+        Breader.Token token;
+        while ((token = reader.next()) != null) {
+            events.add(token);
+            if (token == INT) {
+                events.add(reader.intValue());
+            } else if (token == BYTES || token == KEY) {
+                events.add(reader.stringValue());
+            }
+        }
+        assertEquals(events, asList(
+                START_DICT,
+                    KEY, "list", START_LIST, INT, -4L, BYTES, "Ωw", END,
+                    KEY, "num", INT, 42L,
+                END));
+    }
+
+    @Test
+    void skipValues() throws IOException {
+        Breader reader = new Breader(UTF_8,
+                ByteBuffer.wrap("d1:ad1:bli1ei2eee1:c3:xyz1:di7ee".getBytes(US_ASCII)));
+        assertEquals(reader.next(), START_DICT);
+        assertEquals(reader.next(), KEY);
+        reader.skipValue();
+        assertEquals(reader.token(), END);
+        assertEquals(reader.depth(), 1);
+        assertEquals(reader.next(), KEY);
+        reader.skipValue();
+        assertEquals(reader.token(), BYTES);
+        assertEquals(reader.next(), KEY);
+        assertEquals(reader.byteBufferValue(), ByteBuffer.wrap(new byte[]{0x64}));
+        assertEquals(reader.next(), INT);
+        assertEquals(reader.intValue(), 7);
+        assertEquals(reader.next(), END);
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readSeveralValues() throws IOException {
+        Breader reader = new Breader(UTF_8, "i1e2:ab");
+        assertEquals(reader.next(), INT);
+        assertEquals(reader.next(), BYTES);
+        assertEquals(reader.bytesValue(), new byte[]{0x61, 0x62});
+        assertNull(reader.next());
+    }
+
+    @DataProvider
+    Object[][] invalidData() {
+        return new Object[][] {
+            { "d3:keye"  }, // key without value
+            { "li1e"     }, // end mark missing
+            { "d3:ke"    }, // truncated key
+            { "di1ei2ee" }, // integer key
+            { "x"        }, // unknown value type
+            { "i-0e"     }  // negative zero
+        };
+    }
+
+    @Test(dataProvider = "invalidData", expectedExceptions = IllegalStateException.class)
+    void readInvalidData(String invalidData) throws IOException {
+        Breader reader = new Breader(UTF_8, invalidData);
+        while (reader.next() != null) {
+            reader.skipValue();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void accessWrongValue() throws IOException {
+        Breader reader = new Breader(UTF_8, "i1e");
+        reader.next();
+        reader.stringValue();
+    }
+}
@@ -0,0 +1,118 @@
+package org.benjamin;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+@Test
+public class BvalidatorTest {
+
+    Bvalidator validator = new Bvalidator();
+
+    @DataProvider
+    Object[][] validValues() {
+        return new Object[][] {
+            { "i42e"                         , 4  },
+            { "i0e"                          , 3  },
+            { "i-9223372036854775808e"       , 22 },
+            { "i9223372036854775807e"        , 21 },
+            { "0:"                           , 2  },
+            { "4:spam"                       , 6  },
+            { "le"                           , 2  },
+            { "de"                           , 2  },
+            { "l4:spami42ee"                 , 12 },
+            { "d3:bar4:spam3:fooi42ee"       , 22 },
+            { "d1:ad1:bi1e1:ci2ee1:di3ee"    , 25 },
+            { "d1:ale1:bdee"                 , 12 },
+            { "i1ei2e"                       , 3  }, // trailing value is not examined
+            { "d1:ai1eetrailing"             , 8  }
+        };
+    }
+
+    @Test(dataProvider = "validValues")
+    void validate(String encoded, int length) {
+        assertEquals(validator.validate(ByteBuffer.wrap(encoded.getBytes(UTF_8))), length);
+    }
+
+    @Test
+    void validateFromPosition() {
+        ByteBuffer buffer = ByteBuffer.wrap("i1e4:spamle".getBytes(UTF_8));
+        buffer.position(3);
+
+        assertEquals(validator.validate(buffer), 6);
+        assertEquals(buffer.position(), 3);
+    }
+
+    @Test
+    void validateRawKeyOrder() {
+        // keys are compared as unsigned bytes
+        byte[] encoded = {'d', '1', ':', 'a', 'i', '1', 'e', '1', ':', (byte) 0xff, 'i', '2', 'e',
+                'e'};
+
+        assertEquals(validator.validate(ByteBuffer.wrap(encoded)), encoded.length);
+    }
+
+    @Test
+    void validateDeepNesting() {
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            encoded.append('l');
+        }
+        for (int i = 0; i < 100000; i++) {
+            encoded.append('e');
+        }
+
+        assertEquals(validator.validate(ByteBuffer.wrap(encoded.toString().getBytes(UTF_8))),
+                200000);
+    }
+
+    @DataProvider
+    Object[][] invalidValues() {
+        return new Object[][] {
+            { ""                          }, // empty data
+            { "i42"                       }, // integer not terminated
+            { "ie"                        }, // no digits
+            { "i-e"                       }, // no digits after sign
+            { "i-0e"                      }, // negative zero
+            { "i042e"                     }, // zero padded integer
+            { "i4x2e"                     }, // not a digit
+            { "i9223372036854775808e"     }, // overflow
+            { "i-9223372036854775809e"    }, // negative overflow
+            { "5:spam"                    }, // truncated byte string
+            { "04:spam"                   }, // zero padded length
+            { "2147483648:"               }, // length overflow
+            { "4spam"                     }, // separator missing
+            { "x"                         }, // unknown marker
+            { "e"                         }, // end outside of container
+            { "l4:spam"                   }, // list not terminated
+            { "d3:foo"                    }, // value missing
+            { "d3:fooe"                   }, // value missing before end
+            { "di1ei2ee"                  }, // integer key
+            { "d3:fooi1e3:bari2ee"        }, // unsorted keys
+            { "d3:fooi1e3:fooi2ee"        }, // duplicate keys
+            { "d1:ad1:bi1e1:ai2eee"       }  // unsorted keys of inner dictionary
+        };
+    }
+
+    @Test(dataProvider = "invalidValues", expectedExceptions = IllegalStateException.class)
+    void validateInvalid(String encoded) {
+        validator.validate(ByteBuffer.wrap(encoded.getBytes(UTF_8)));
+    }
+
+    @Test
+    void validateAfterInvalid() {
+        try {
+            validator.validate(ByteBuffer.wrap("d1:bld1:a".getBytes(UTF_8)));
+            fail("Truncated data was accepted");
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "End of data was reached prematurely at index 9");
+        }
+
+        assertEquals(validator.validate(ByteBuffer.wrap("d1:ai1ee".getBytes(UTF_8))), 8);
+    }
+}
@@ -0,0 +1,132 @@
+package org.benjamin;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class BwriterTest {
+
+    ByteArrayOutputStream output;
+    Bwriter writer;
+
+    @BeforeMethod
+    void setUp() {
+        output = new ByteArrayOutputStream();
+        writer = new Bwriter(UTF_8, output).checked();
+    }
+
+    @Test
+    void writeTokens() throws IOException {
+        writer.beginDict()
+                .key("list").beginList()
+                    .value(-4).value("Ωw")
+                    .value(new byte[]{49}).value(ByteBuffer.wrap(new byte[]{50}))
+                .end()
+                .key("num").value(42)
+                .key("rest").value(asList(Collections.singletonMap("k", 1), "v"))
+            .end()
+            .value(7);
+
+        assertEquals(output.toString("UTF-8"),
+                "d4:listli-4e3:Ωw1:11:2e3:numi42e4:restld1:ki1ee1:veei7e");
+        assertEquals(writer.depth(), 0);
+    }
+
+    @Test
+    void flushCompleteValues() throws IOException {
+        writer.beginList().value(1);
+        assertEquals(output.size(), 0);
+        assertEquals(writer.depth(), 1);
+
+        writer.end();
+        assertEquals(output.toString("UTF-8"), "li1ee");
+    }
+
+    @Test
+    void writeLargeDocument() throws IOException {
+        writer.beginDict().key("files").beginDict();
+        for (int i = 0; i < 10000; i++) {
+            writer.key(String.format("%08d", i)).beginDict().key("complete").value(i).end();
+        }
+        writer.end().end();
+
+        Bnode files = new Bdecoder(UTF_8, ByteBuffer.wrap(output.toByteArray()))
+                .decodeNode().get("files");
+        assertEquals(files.size(), 10000);
+        assertEquals(files.get("00004242").get("complete").intValue(), 4242);
+    }
+
+    @Test
+    void writeRawKeys() throws IOException {
+        writer.beginDict().key(new byte[]{1}).value(1).key(new byte[]{(byte) 0xff}).value(2).end();
+
+        assertEquals(output.toByteArray(), new byte[]{'d', '1', ':', 1, 'i', '1', 'e',
+                '1', ':', (byte) 0xff, 'i', '2', 'e', 'e'});
+    }
+
+    @Test
+    void writeNonAsciiKeysInRawOrder() throws IOException {
+        // U+FF61 is encoded to bytes less than the ones of the supplementary character
+        writer.beginDict().key("｡").value(1).key("😀").value(2).end();
+
+        assertEquals(output.toString("UTF-8"), "d3:｡i1e4:😀i2ee");
+    }
+
+    @Test
+    void writeUncheckedKeys() throws IOException {
+        new Bwriter(UTF_8, output).beginDict().key("b").value(1).key("a").value(2).end();
+
+        assertEquals(output.toString("UTF-8"), "d1:bi1e1:ai2ee");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void writeUnorderedKeys() throws IOException {
+        writer.beginDict().key("b").value(1).key("a");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void writeDuplicateKeys() throws IOException {
+        writer.beginDict().key("a").value(1).key("a");
+    }
+
+    @Test
+    void orderKeysPerDictionary() throws IOException {
+        writer.beginDict().key("b").beginDict().key("a").value(1).end().key("c").value(2).end();
+
+        assertEquals(output.toString("UTF-8"), "d1:bd1:ai1ee1:ci2ee");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void writeValueInsteadOfKey() throws IOException {
+        writer.beginDict().value(1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void writeKeyInList() throws IOException {
+        writer.beginList().key("a");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void writeKeyAtTopLevel() throws IOException {
+        writer.key("a");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void endWithoutValue() throws IOException {
+        writer.beginDict().key("a").end();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void endAtTopLevel() throws IOException {
+        writer.value(1).end();
+    }
+}
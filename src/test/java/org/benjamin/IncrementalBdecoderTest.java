@@ -0,0 +1,170 @@
+package org.benjamin;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEquals;
+
+@Test
+public class IncrementalBdecoderTest {
+
+    static final String MESSAGE = "d1:ad2:id2:Ωe1:q4:ping1:t2:aa1:lli-12e0:i0eee";
+
+    static final Map<String, Object> DECODED = new HashMap<String, Object>() {{
+        put("a", new HashMap<String, Object>() {{
+            put("id", "Ω".getBytes(UTF_8));
+        }});
+        put("q", "ping");
+        put("t", "aa");
+        put("l", asList(-12L, "", 0L));
+    }};
+
+    @DataProvider
+    Object[][] chunkSizes() {
+        return new Object[][] {
+            { 1   },
+            { 3   },
+            { 7   },
+            { 100 }
+        };
+    }
+
+    @Test(dataProvider = "chunkSizes")
+    void decodeInChunks(int chunkSize) {
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8, "a.id");
+        byte[] bytes = (MESSAGE + MESSAGE).getBytes(UTF_8);
+        List<Object> values = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            ByteBuffer chunk = ByteBuffer.wrap(bytes, offset,
+                    Math.min(chunkSize, bytes.length - offset));
+            while (decoder.feed(chunk)) {
+                values.add(decoder.value());
+            }
+            assertFalse(chunk.hasRemaining());
+        }
+        assertTrue(decoder.isIdle());
+        assertReflectionEquals(asList(DECODED, DECODED), values);
+    }
+
+    @Test
+    void leaveBytesOfNextValue() {
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8);
+        ByteBuffer bytes = ByteBuffer.wrap("i42e4:spam".getBytes(UTF_8));
+        assertTrue(decoder.feed(bytes));
+        assertTrue(decoder.feed(bytes));
+        assertEquals(bytes.position(), 4);
+        assertEquals(decoder.value(), 42L);
+        assertTrue(decoder.feed(bytes));
+        assertEquals(decoder.value(), "spam");
+        assertFalse(decoder.feed(bytes));
+    }
+
+    @Test
+    void reportPartialValue() {
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8);
+        assertFalse(decoder.feed(ByteBuffer.wrap("l4:sp".getBytes(UTF_8))));
+        assertFalse(decoder.isIdle());
+        decoder.reset();
+        assertTrue(decoder.isIdle());
+        assertTrue(decoder.feed(ByteBuffer.wrap("i-7e".getBytes(UTF_8))));
+        assertEquals(decoder.value(), -7L);
+    }
+
+    @DataProvider
+    Object[][] invalidData() {
+        return new Object[][] {
+            { "i-0e"     }, // negative zero
+            { "i03e"     }, // zero padding
+            { "di1ei2ee" }, // integer key
+            { "2x"       }, // malformed length
+            { "x"        }, // unknown value type
+            { "d1:ae"    }  // key without value
+        };
+    }
+
+    @Test(dataProvider = "invalidData", expectedExceptions = IllegalStateException.class)
+    void decodeInvalidData(String invalidData) {
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8);
+        ByteBuffer bytes = ByteBuffer.wrap(invalidData.getBytes(UTF_8));
+        while (bytes.hasRemaining()) {
+            if (decoder.feed(bytes)) {
+                decoder.value();
+            }
+        }
+    }
+
+    @Test(expectedExceptions = NumberFormatException.class)
+    void decodeIntegerOutOfRange() {
+        new IncrementalBdecoder(UTF_8)
+            .feed(ByteBuffer.wrap("i9223372036854775808e".getBytes(UTF_8)));
+    }
+
+    @Test
+    void decodeLongStringInChunks() {
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8);
+        char[] content = new char[100000];
+        Arrays.fill(content, 'x');
+        byte[] bytes = ("100000:" + new String(content)).getBytes(UTF_8);
+        for (int offset = 0; offset < bytes.length; offset += 4096) {
+            decoder.feed(ByteBuffer.wrap(bytes, offset, Math.min(4096, bytes.length - offset)));
+        }
+        assertEquals(decoder.value(), new String(content));
+    }
+
+    @Test
+    void ignoreClaimedLengthUntilContentArrives() {
+        // the claimed length must not be allocated upfront
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(decoder.feed(ByteBuffer.wrap("2147483647:".getBytes(UTF_8))));
+            decoder.reset();
+        }
+    }
+
+    @DataProvider
+    Object[][] exceededLimits() {
+        return new Object[][] {
+            { Blimits.UNLIMITED.maxStringLength(3), "4:spam"        },
+            { Blimits.UNLIMITED.maxStringLength(3), "2147483647:"   },
+            { Blimits.UNLIMITED.maxTotalBytes(10) , "d3:foo4:spame" }, // claimed string length
+            { Blimits.UNLIMITED.maxTotalBytes(10) , "li1ei2ei3ee"   },
+            { Blimits.UNLIMITED.maxDepth(2)       , "llleee"        },
+            { Blimits.UNLIMITED.maxElements(2)    , "li1ei2ei3ee"   }
+        };
+    }
+
+    @Test(dataProvider = "exceededLimits", expectedExceptions = IllegalStateException.class)
+    void decodeBeyondLimits(Blimits limits, String encoded) {
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8).limits(limits);
+        decoder.feed(ByteBuffer.wrap(encoded.getBytes(UTF_8)));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void keepLimitsOnReset() {
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8)
+                .limits(Blimits.UNLIMITED.maxStringLength(4));
+        assertTrue(decoder.feed(ByteBuffer.wrap("4:spam".getBytes(UTF_8))));
+        assertEquals(decoder.value(), "spam");
+        decoder.reset();
+        decoder.feed(ByteBuffer.wrap("5:spams".getBytes(UTF_8)));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    void takeIncompleteValue() {
+        IncrementalBdecoder decoder = new IncrementalBdecoder(UTF_8);
+        decoder.feed(ByteBuffer.wrap("i1".getBytes(UTF_8)));
+        decoder.value();
+    }
+}
@@ -7,11 +7,19 @@ import org.testng.annotations.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.Map;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEquals;
 
 @Test
@@ -61,9 +69,164 @@ public class TorrentTest {
                 "re-encoded torrent should be equal to original file");
     }
 
+    @Test
+    void decodeMappedTorrent() throws IOException, URISyntaxException {
+        try (FileChannel channel = FileChannel.open(Paths.get(getClass()
+                .getResource("/ubuntu-14.10-desktop-amd64.iso.torrent").toURI()))) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Map<String, Object> mappedTorrent =
+                    new Bdecoder(UTF_8, mapped).decodeDict("info.pieces");
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> info = (Map<String, Object>) mappedTorrent.get("info");
+            assertEquals(info.get("name"), "ubuntu-14.10-desktop-amd64.iso");
+            assertEquals(((ByteBuffer) info.get("pieces")).remaining(), 44380);
+
+            encoder.encode(mappedTorrent);
+            assertEquals(
+                    IOUtils.toByteArray(torrentFileStream()),
+                    encodedTorrent.toByteArray(),
+                    "re-encoded torrent should be equal to original file");
+        }
+    }
+
+    @Test
+    void encodeLazyTorrent() throws IOException {
+        Map<String, Object> lazyTorrent =
+                new Bdecoder(UTF_8, ByteBuffer.wrap(IOUtils.toByteArray(torrentFileStream())))
+                    .lazy()
+                    .decodeDict("info.pieces");
+        assertEquals(lazyTorrent.get("creation date"), 1414070124L);
+        encoder.encode(lazyTorrent);
+        assertEquals(
+                IOUtils.toByteArray(torrentFileStream()),
+                encodedTorrent.toByteArray(),
+                "re-encoded torrent should be equal to original file");
+    }
+
+    @Test(dependsOnMethods = "decodeTorrent")
+    void digestInfo() throws IOException, NoSuchAlgorithmException {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> info = (Map<String, Object>) torrent.get("info");
+        encoder.encode(info);
+        byte[] infoHash = MessageDigest.getInstance("SHA-1").digest(encodedTorrent.toByteArray());
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        byte[] torrentBytes = IOUtils.toByteArray(torrentFileStream());
+
+        new Bdecoder(UTF_8, torrentFileStream()).digest("info", sha1).decodeDict("info.pieces");
+        assertEquals(sha1.digest(), infoHash, "digest of streamed info");
+        new Bdecoder(UTF_8, torrentFileStream()).digest("info", sha1).decodeDict(asList("name"));
+        assertEquals(sha1.digest(), infoHash, "digest of skipped info");
+        new Bdecoder(UTF_8, ByteBuffer.wrap(torrentBytes)).digest("info", sha1).decodeDict();
+        assertEquals(sha1.digest(), infoHash, "digest of buffered info");
+        new Bdecoder(UTF_8, ByteBuffer.wrap(torrentBytes)).lazy().digest("info", sha1).decodeDict();
+        assertEquals(sha1.digest(), infoHash, "digest of lazily decoded info");
+    }
+
+    @Test
+    void decodeTorrentProjection() throws IOException {
+        Map<String, Object> projection =
+                decoder.decodeDict(asList("announce", "info.name", "info.length"));
+        assertEquals(projection.keySet(), asList("announce", "info"));
+        assertEquals(projection.get("announce"), "http://torrent.ubuntu.com:6969/announce");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> info = (Map<String, Object>) projection.get("info");
+        assertEquals(info.keySet(), asList("length", "name"));
+        assertEquals(info.get("length"), 1162936320L);
+        assertEquals(info.get("name"), "ubuntu-14.10-desktop-amd64.iso");
+    }
+
+    @Test
+    void readTorrentSelectively() throws IOException {
+        Breader reader = new Breader(UTF_8, torrentFileStream());
+        String announce = null;
+        long length = 0;
+        reader.next();
+        while (reader.next() == Breader.Token.KEY) {
+            String key = reader.stringValue();
+            if ("announce".equals(key)) {
+                reader.next();
+                announce = reader.stringValue();
+            } else if ("info".equals(key)) {
+                reader.next();
+                while (reader.next() == Breader.Token.KEY) {
+                    if ("length".equals(reader.stringValue())) {
+                        reader.next();
+                        length = reader.intValue();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        assertEquals(announce, "http://torrent.ubuntu.com:6969/announce");
+        assertEquals(length, 1162936320L);
+    }
+
+    @Test
+    void editTorrentKeepingInfo() throws IOException, NoSuchAlgorithmException {
+        byte[] torrentBytes = IOUtils.toByteArray(torrentFileStream());
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        Map<String, Object> edited = new Bdecoder(UTF_8, ByteBuffer.wrap(torrentBytes))
+            .digest("info", sha1)
+            .raw("info")
+            .decodeDict();
+        byte[] infoHash = sha1.digest();
+        assertTrue(edited.get("info") instanceof Braw);
+
+        edited.put("announce", "http://tracker.example.org/announce");
+        encoder.encode(edited);
+        new Bdecoder(UTF_8, ByteBuffer.wrap(encodedTorrent.toByteArray()))
+            .digest("info", sha1)
+            .decodeDict();
+        assertEquals(sha1.digest(), infoHash, "info-hash of the edited torrent");
+        assertEquals(encodedTorrent.size(), torrentBytes.length
+                - "http://torrent.ubuntu.com:6969/announce".length()
+                + "http://tracker.example.org/announce".length());
+    }
+
+    @Test
+    void decodeBoundTorrent() throws IOException {
+        Torrent bound = decoder.decode(Bbinding.of(Torrent.class));
+        assertEquals(bound.announce, "http://torrent.ubuntu.com:6969/announce");
+        assertEquals(bound.announceList, asList(
+                asList("http://torrent.ubuntu.com:6969/announce"),
+                asList("http://ipv6.torrent.ubuntu.com:6969/announce")));
+        assertEquals(bound.creationDate, 1414070124L);
+        assertEquals(bound.info.length, 1162936320L);
+        assertEquals(bound.info.name, "ubuntu-14.10-desktop-amd64.iso");
+        assertEquals(bound.info.pieceLength, 524288);
+        assertEquals(bound.info.pieces.length, 44380);
+
+        encoder.encode(bound, Bbinding.of(Torrent.class));
+        assertEquals(
+                IOUtils.toByteArray(torrentFileStream()),
+                encodedTorrent.toByteArray(),
+                "re-encoded torrent should be equal to original file");
+    }
+
     InputStream torrentFileStream() {
         return getClass()
             .getResourceAsStream("/ubuntu-14.10-desktop-amd64.iso.torrent");
     }
 
+    static class Torrent {
+        String announce;
+        @Bkey("announce-list")
+        List<List<String>> announceList;
+        String comment;
+        @Bkey("creation date")
+        long creationDate;
+        Info info;
+    }
+
+    static class Info {
+        long length;
+        String name;
+        @Bkey("piece length")
+        int pieceLength;
+        byte[] pieces;
+    }
 }